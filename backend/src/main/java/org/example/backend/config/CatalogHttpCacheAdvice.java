@@ -0,0 +1,45 @@
+package org.example.backend.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Gắn ETag và Cache-Control do {@link CatalogHttpCacheInterceptor} tính sẵn, ngay trước khi ghi body,
+ * và chỉ khi controller trả về mã 2xx.
+ */
+@RestControllerAdvice
+public class CatalogHttpCacheAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest) || !(response instanceof ServletServerHttpResponse servletResponse)) {
+            return body;
+        }
+        HttpServletRequest httpRequest = servletRequest.getServletRequest();
+        Object eTag = httpRequest.getAttribute(CatalogHttpCacheInterceptor.ETAG_ATTRIBUTE);
+        if (eTag == null || !HttpStatusCode.valueOf(servletResponse.getServletResponse().getStatus()).is2xxSuccessful()) {
+            return body;
+        }
+        response.getHeaders().set(HttpHeaders.ETAG, (String) eTag);
+        response.getHeaders().set(HttpHeaders.CACHE_CONTROL,
+                (String) httpRequest.getAttribute(CatalogHttpCacheInterceptor.CACHE_CONTROL_ATTRIBUTE));
+        return body;
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.backend.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.backend.service.CatalogVersion;
+import org.example.backend.service.ProductViewCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+
+/**
+ * ETag mạnh và Cache-Control cho các API công khai /api/products/**. ETag lấy từ {@link CatalogVersion}
+ * nên yêu cầu có If-None-Match khớp được trả 304 ngay tại đây, trước khi controller gọi tới repository;
+ * 304 cho trang chi tiết vẫn được tính là một lượt xem.
+ * Các yêu cầu còn lại chỉ được gắn header khi phản hồi là 2xx (xem {@link CatalogHttpCacheAdvice}),
+ * để 404 / 500 không bị proxy hay trình duyệt lưu lại.
+ */
+@Component
+public class CatalogHttpCacheInterceptor implements HandlerInterceptor {
+    private static final String PREFIX = "/api/products/";
+    static final String ETAG_ATTRIBUTE = CatalogHttpCacheInterceptor.class.getName() + ".eTag";
+    static final String CACHE_CONTROL_ATTRIBUTE = CatalogHttpCacheInterceptor.class.getName() + ".cacheControl";
+
+    private final CatalogVersion catalogVersion;
+    private final ProductViewCounter productViewCounter;
+    private final String listCacheControl;
+    private final String detailCacheControl;
+    private final String bestSellersCacheControl;
+
+    public CatalogHttpCacheInterceptor(CatalogVersion catalogVersion,
+                                       ProductViewCounter productViewCounter,
+                                       @Value("${catalog.cache-control.list:PT1M}") Duration listMaxAge,
+                                       @Value("${catalog.cache-control.detail:PT5M}") Duration detailMaxAge,
+                                       @Value("${catalog.cache-control.bestsellers:PT5M}") Duration bestSellersMaxAge) {
+        this.catalogVersion = catalogVersion;
+        this.productViewCounter = productViewCounter;
+        this.listCacheControl = CacheControl.maxAge(listMaxAge).cachePublic().getHeaderValue();
+        this.detailCacheControl = CacheControl.maxAge(detailMaxAge).cachePublic().getHeaderValue();
+        this.bestSellersCacheControl = CacheControl.maxAge(bestSellersMaxAge).cachePublic().getHeaderValue();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith(PREFIX)) {
+            return true;
+        }
+        String resource = path.substring(PREFIX.length());
+        String eTag;
+        String cacheControl;
+        Long productId = null;
+        if (resource.equals("bestsellers")) {
+            eTag = catalogVersion.bestSellersETag();
+            cacheControl = bestSellersCacheControl;
+        } else if (resource.equals("most-viewed")) {
+            eTag = catalogVersion.mostViewedETag();
+            cacheControl = listCacheControl;
+        } else if (resource.matches("\\d+")) {
+            productId = parseId(resource);
+            if (productId == null) {
+                // Id vượt quá kiểu long: để controller trả lỗi, không gắn header cache
+                return true;
+            }
+            eTag = catalogVersion.productETag(productId);
+            cacheControl = detailCacheControl;
+        } else {
+            eTag = catalogVersion.catalogETag();
+            cacheControl = listCacheControl;
+        }
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            if (productId != null) {
+                // Controller không chạy khi trả 304 nên lượt xem được ghi nhận tại đây
+                productViewCounter.recordView(productId);
+            }
+            response.setHeader(HttpHeaders.ETAG, eTag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        request.setAttribute(ETAG_ATTRIBUTE, eTag);
+        request.setAttribute(CACHE_CONTROL_ATTRIBUTE, cacheControl);
+        return true;
+    }
+
+    private static Long parseId(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // If-None-Match có thể chứa nhiều ETag, ETag yếu (W/) hoặc "*"
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -49,7 +49,8 @@ public class SecurityConfig {
                                 "/api/images/**",
                                 "/api/shipping/**",
                                 "/api/review/**",
-                                "/api/vouchers/**"
+                                "/api/vouchers/**",
+                                "/api/payment/vnpay-ipn"
                         ).permitAll()
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
@@ -70,7 +71,7 @@ public class SecurityConfig {
 
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
         config.setAllowedHeaders(List.of("*"));
-        config.setExposedHeaders(List.of("Authorization"));
+        config.setExposedHeaders(List.of("Authorization", "ETag", "Idempotent-Replayed"));
         config.setMaxAge(3600L);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
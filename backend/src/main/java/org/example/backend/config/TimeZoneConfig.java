@@ -0,0 +1,23 @@
+package org.example.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.ZoneId;
+
+/**
+ * Múi giờ nghiệp vụ dùng để cắt ranh giới ngày cho các bảng tổng hợp theo ngày. Hibernate ghi DATETIME
+ * theo cùng múi giờ này (hibernate.jdbc.time_zone) để CAST(... AS DATE) trong các câu backfill khớp với phía Java.
+ */
+@Configuration
+public class TimeZoneConfig {
+
+    @Value("${app.zone-id:Asia/Ho_Chi_Minh}")
+    private String zoneId;
+
+    @Bean
+    public ZoneId appZoneId() {
+        return ZoneId.of(zoneId);
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.backend.config;
+
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Ký và kiểm tra chữ ký tham số VNPay (HmacSHA512). Mỗi thread giữ sẵn một Mac đã init với secret key,
+ * chuỗi query / dữ liệu ký được dựng trong một lượt (mỗi giá trị chỉ URL-encode một lần) và chữ ký
+ * được so sánh theo thời gian hằng để không lộ thông tin qua thời gian phản hồi.
+ */
+@Component
+public class VNPayCodec {
+    private static final String ALGORITHM = "HmacSHA512";
+    private static final String SECURE_HASH = "vnp_SecureHash";
+    private static final String SECURE_HASH_TYPE = "vnp_SecureHashType";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ThreadLocal<Mac> macs;
+
+    public VNPayCodec(VNPayConfig vnpayConfig) {
+        SecretKeySpec key = new SecretKeySpec(vnpayConfig.getSecretKey().getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Không thể khởi tạo " + ALGORITHM, e);
+            }
+        });
+    }
+
+    /**
+     * Chuỗi query đã ký, sẵn sàng nối vào vnp_PayUrl sau dấu '?'.
+     */
+    public String signedQuery(Map<String, String> params) {
+        String canonical = canonicalize(params);
+        return canonical + "&" + SECURE_HASH + "=" + sign(canonical);
+    }
+
+    /**
+     * Kiểm tra vnp_SecureHash của các tham số VNPay gửi về (return URL / IPN).
+     */
+    public boolean verify(Map<String, String> fields) {
+        byte[] received = decodeHex(fields.get(SECURE_HASH));
+        if (received == null) {
+            return false;
+        }
+        byte[] expected = mac(canonicalize(fields));
+        return MessageDigest.isEqual(expected, received);
+    }
+
+    public String sign(String data) {
+        return encodeHex(mac(data));
+    }
+
+    /**
+     * Sắp xếp tham số theo tên, bỏ giá trị rỗng và các trường chữ ký, nối thành name=urlencode(value)&...
+     * Tên tham số VNPay (vnp_*) không chứa ký tự cần encode nên chuỗi này vừa là dữ liệu ký vừa là query.
+     */
+    public String canonicalize(Map<String, String> params) {
+        StringBuilder sb = new StringBuilder(256);
+        for (Map.Entry<String, String> entry : new TreeMap<>(params).entrySet()) {
+            String name = entry.getKey();
+            String value = entry.getValue();
+            if (value == null || value.isEmpty() || SECURE_HASH.equals(name) || SECURE_HASH_TYPE.equals(name)) {
+                continue;
+            }
+            if (!sb.isEmpty()) {
+                sb.append('&');
+            }
+            sb.append(name).append('=').append(URLEncoder.encode(value, StandardCharsets.US_ASCII));
+        }
+        return sb.toString();
+    }
+
+    private byte[] mac(String data) {
+        // doFinal tự reset Mac nên có thể dùng lại ngay cho lần ký tiếp theo trên cùng thread
+        return macs.get().doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String encodeHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[2 * i] = HEX[(bytes[i] >> 4) & 0x0f];
+            out[2 * i + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(out);
+    }
+
+    private static byte[] decodeHex(String hex) {
+        if (hex == null || (hex.length() & 1) != 0) {
+            return null;
+        }
+        byte[] out = new byte[hex.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            out[i] = (byte) ((high << 4) | low);
+        }
+        return out;
+    }
+}
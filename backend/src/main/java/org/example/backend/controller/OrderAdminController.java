@@ -1,6 +1,9 @@
 package org.example.backend.controller;
 
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.example.backend.dto.BulkStatusRequest;
+import org.example.backend.dto.BulkStatusUpdateResult;
 import org.example.backend.dto.OrderDetailResponseDTO;
 import org.example.backend.dto.OrderResponseDTO;
 import org.example.backend.dto.RoleDTO;
@@ -11,8 +14,12 @@ import org.example.backend.enums.OrderStatus;
 import org.example.backend.repository.OrderRepository;
 import org.example.backend.service.AuthService;
 import org.example.backend.service.OrderService;
+import org.example.backend.service.RevenueSeriesService;
+import org.example.backend.service.SalesRollupService;
+import org.example.backend.util.KeysetCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
@@ -32,42 +39,43 @@ public class OrderAdminController {
     private final OrderService orderService;
     private final OrderRepository orderRepository;
     private final AuthService authService;
+    private final SalesRollupService salesRollupService;
+    private final RevenueSeriesService revenueSeriesService;
 
     @PutMapping("/{orderId}/status")
     public ResponseEntity<?> updateOrderStatus(@PathVariable Long orderId, @RequestBody Map<String, String> request) {
         try {
             String newStatus = request.get("status");
-            Order order = orderRepository.findById(orderId)
-                    .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy đơn hàng"));
-
-            OrderStatus current = order.getOrderStatus();
-            OrderStatus next = OrderStatus.valueOf(newStatus);
+            orderService.updateOrderStatus(orderId, OrderStatus.valueOf(newStatus));
+            return ResponseEntity.ok(createResponse(true, "Cập nhật trạng thái đơn hàng thành công"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(createResponse(false, "Lỗi khi cập nhật trạng thái: " + e.getMessage()));
+        }
+    }
 
-            if (current == OrderStatus.CANCELLED || current == OrderStatus.DELIVERED || current == OrderStatus.REFUSED) {
-                throw new IllegalStateException("Không thể cập nhật trạng thái của đơn hàng đã hoàn thành hoặc đã hủy.");
-            }
-            if (current == OrderStatus.PENDING && next != OrderStatus.CONFIRMED && next != OrderStatus.CANCELLED && next != OrderStatus.REFUSED) {
-                throw new IllegalStateException("Chỉ có thể xác nhận, từ chối hoặc hủy đơn hàng ở trạng thái chờ xác nhận.");
-            }
-            if (current == OrderStatus.CONFIRMED && next != OrderStatus.ON_DELIVERY && next != OrderStatus.CANCELLED && next != OrderStatus.REFUSED) {
-                throw new IllegalStateException("Chỉ có thể chuyển sang giao hàng, từ chối hoặc hủy ở trạng thái đã xác nhận.");
-            }
-            if (current == OrderStatus.ON_DELIVERY && next != OrderStatus.DELIVERED && next != OrderStatus.CANCELLED) {
-                throw new IllegalStateException("Chỉ có thể chuyển sang giao thành công hoặc hủy ở trạng thái đang giao.");
-            }
 
-            // Nếu chuyển sang DELIVERED thì cập nhật ngày giao hàng
-            if (next == OrderStatus.DELIVERED) {
-                order.setDeliveryDate(java.time.Instant.now());
-            }
-            order.setOrderStatus(next);
-            orderRepository.save(order);
-            return ResponseEntity.ok(createResponse(true, "Cập nhật trạng thái đơn hàng thành công"));
+    @PutMapping("/status")
+    public ResponseEntity<?> bulkUpdateOrderStatus(@Valid @RequestBody BulkStatusRequest request) {
+        try {
+            BulkStatusUpdateResult result = orderService.bulkUpdateOrderStatus(request.getOrderIds(), request.getStatus());
+            String message = "Đã cập nhật " + result.getUpdated().size() + " đơn hàng, " + result.getFailed().size() + " đơn thất bại";
+            return ResponseEntity.ok(createResponse(true, message, result));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(createResponse(false, "Lỗi khi cập nhật trạng thái: " + e.getMessage()));
         }
     }
 
+    @PostMapping("/sales-rollup/rebuild")
+    public ResponseEntity<?> rebuildSalesRollup() {
+        try {
+            int rows = salesRollupService.rebuild();
+            int revenueRows = revenueSeriesService.rebuild();
+            return ResponseEntity.ok(createResponse(true, "Dựng lại bảng tổng hợp doanh số thành công",
+                    Map.of("rows", rows, "revenueRows", revenueRows)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(createResponse(false, "Lỗi khi dựng lại bảng tổng hợp doanh số: " + e.getMessage()));
+        }
+    }
 
     @GetMapping("/{orderId}/details")
     public ResponseEntity<?> getOrderDetailAdmin(@PathVariable Long orderId) {
@@ -78,8 +86,13 @@ public class OrderAdminController {
             return ResponseEntity.badRequest().body(createResponse(false, "Lỗi khi lấy chi tiết đơn hàng: " + e.getMessage()));
         }
     } @GetMapping("/all")
-    public ResponseEntity<?> getAllOrders(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "5") int size) {
+    public ResponseEntity<?> getAllOrders(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "5") int size,
+                                          @RequestParam(required = false) String after) {
         try {
+            if (after != null) {
+                Slice<Order> orderSlice = orderService.getAllOrdersAfter(KeysetCursor.decode(after), size);
+                return ResponseEntity.ok(createResponse(true, "Lấy danh sách đơn hàng thành công", toCursorResponse(orderSlice)));
+            }
             Pageable pageable = PageRequest.of(page, size, Sort.by("bookingDate").descending());
             Page<Order> orderPage = orderService.getAllOrders(pageable);
             List<OrderResponseDTO> responseDTOs = orderPage.getContent().stream()
@@ -119,6 +132,17 @@ public class OrderAdminController {
         }
     }
 
+    private Map<String, Object> toCursorResponse(Slice<Order> orderSlice) {
+        List<OrderResponseDTO> responseDTOs = orderSlice.getContent().stream()
+                .map(this::convertToOrderResponseDTO)
+                .collect(Collectors.toList());
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", responseDTOs);
+        response.put("nextCursor", orderService.nextCursor(orderSlice));
+        response.put("hasNext", orderSlice.hasNext());
+        return response;
+    }
+
     private OrderResponseDTO convertToOrderResponseDTO(Order order) {
         OrderResponseDTO dto = new OrderResponseDTO();
         dto.setId(order.getId());
@@ -7,15 +7,23 @@ import org.example.backend.entity.User;
 import org.example.backend.enums.OrderStatus;
 import org.example.backend.repository.OrderRepository;
 import org.example.backend.service.AuthService;
+import org.example.backend.service.IdempotencyService;
 import org.example.backend.service.OrderService;
+import org.example.backend.service.RevenueSeriesService;
+import org.example.backend.service.SalesRollupService;
+import org.example.backend.util.KeysetCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,28 +36,44 @@ public class OrderController {
     private final OrderService orderService;
     private final OrderRepository orderRepository;
     private final AuthService authService;
+    private final SalesRollupService salesRollupService;
+    private final RevenueSeriesService revenueSeriesService;
+    private final IdempotencyService idempotencyService;
+    private final ZoneId appZoneId;
 
     @PostMapping
-    public ResponseEntity<?> createOrder(@RequestBody OrderDTO orderDTO) {
+    public ResponseEntity<?> createOrder(@RequestBody OrderDTO orderDTO,
+                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         Long userId = authService.getCurrentUserId();
         if (userId == null) {
             return ResponseEntity.status(401).body(createResponse(false, "Người dùng chưa được xác thực"));
         }
-        try {
-            Order order = orderService.createOrder(userId, orderDTO);
-            OrderResponseDTO responseDTO = convertToOrderResponseDTO(order);
-            return ResponseEntity.ok(createResponse(true, "Tạo đơn hàng thành công", responseDTO));
-        } catch (IllegalArgumentException | IllegalStateException e) {
-            return ResponseEntity.badRequest().body(createResponse(false, e.getMessage()));
-        }
+        return idempotencyService.execute("orders", userId, idempotencyKey, orderDTO, () -> {
+            try {
+                Order order = orderService.createOrder(userId, orderDTO);
+                OrderResponseDTO responseDTO = convertToOrderResponseDTO(order);
+                return ResponseEntity.ok(createResponse(true, "Tạo đơn hàng thành công", responseDTO));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                return ResponseEntity.badRequest().body(createResponse(false, e.getMessage()));
+            }
+        });
     }
 
     @GetMapping
-    public ResponseEntity<?> getUserOrders(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "5") int size) {
+    public ResponseEntity<?> getUserOrders(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "5") int size,
+                                           @RequestParam(required = false) String after) {
         Long userId = authService.getCurrentUserId();
         if (userId == null) {
             return ResponseEntity.status(401).body(createResponse(false, "Người dùng chưa được xác thực"));
         }
+        if (after != null) {
+            try {
+                Slice<Order> orderSlice = orderService.getUserOrdersAfter(userId, KeysetCursor.decode(after), size);
+                return ResponseEntity.ok(createResponse(true, "Lấy danh sách đơn hàng thành công", toCursorResponse(orderSlice)));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(createResponse(false, e.getMessage()));
+            }
+        }
         Pageable pageable = PageRequest.of(page, size, Sort.by("bookingDate").descending());
         Page<Order> orderPage = orderService.getUserOrders(userId, pageable);
         List<OrderResponseDTO> responseDTOs = orderPage.getContent().stream()
@@ -128,22 +152,37 @@ public class OrderController {
     }
 
     @GetMapping("/total-sales")
-    public ResponseEntity<?> getTotalSales() {
+    public ResponseEntity<?> getTotalSales(@RequestParam(defaultValue = "month") String period) {
         try {
-            BigDecimal totalSales = orderService.getTotalSales();
+            BigDecimal totalSales = revenueSeriesService.getTotalSales();
             Map<String, Object> data = new HashMap<>();
             data.put("totalSales", totalSales);
-            data.put("growthPercentage", 72.8); // Giá trị giả lập
+            data.put("growthPercentage", revenueSeriesService.getGrowthPercentage(period));
+            data.put("period", period);
             return ResponseEntity.ok(createResponse(true, "Lấy tổng doanh số thành công", data));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(createResponse(false, "Lỗi khi lấy tổng doanh số: " + e.getMessage()));
         }
     }
 
+    @GetMapping("/revenue-series")
+    public ResponseEntity<?> getRevenueSeries(@RequestParam(defaultValue = "day") String period,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            LocalDate end = to != null ? to : LocalDate.now(appZoneId);
+            LocalDate start = from != null ? from : end.minusDays(29);
+            List<Map<String, Object>> series = revenueSeriesService.getSeries(period, start, end);
+            return ResponseEntity.ok(createResponse(true, "Lấy chuỗi doanh thu thành công", series));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(createResponse(false, "Lỗi khi lấy chuỗi doanh thu: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/sales-by-category")
     public ResponseEntity<?> getSalesByCategory() {
         try {
-            Map<String, BigDecimal> salesByCategory = orderService.getSalesByCategory();
+            Map<String, BigDecimal> salesByCategory = salesRollupService.getSalesByCategory();
             List<Map<String, Object>> data = salesByCategory.entrySet().stream()
                     .map(entry -> {
                         Map<String, Object> item = new HashMap<>();
@@ -158,6 +197,17 @@ public class OrderController {
         }
     }
 
+    private Map<String, Object> toCursorResponse(Slice<Order> orderSlice) {
+        List<OrderResponseDTO> responseDTOs = orderSlice.getContent().stream()
+                .map(this::convertToOrderResponseDTO)
+                .collect(Collectors.toList());
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", responseDTOs);
+        response.put("nextCursor", orderService.nextCursor(orderSlice));
+        response.put("hasNext", orderSlice.hasNext());
+        return response;
+    }
+
     private OrderResponseDTO convertToOrderResponseDTO(Order order) {
         OrderResponseDTO dto = new OrderResponseDTO();
         dto.setId(order.getId());
@@ -3,6 +3,7 @@ package org.example.backend.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.example.backend.config.VNPayCodec;
 import org.example.backend.config.VNPayConfig;
 import org.example.backend.dto.OrderDTO;
 import org.example.backend.dto.OrderResponseDTO;
@@ -10,12 +11,15 @@ import org.example.backend.dto.RoleDTO;
 import org.example.backend.dto.UserDTO;
 import org.example.backend.entity.Order;
 import org.example.backend.entity.User;
-import org.example.backend.enums.OrderStatus;
+import org.example.backend.enums.PaymentConfirmation;
 import org.example.backend.repository.OrderDetailRepository;
 import org.example.backend.repository.OrderRepository;
 import org.example.backend.repository.UserRepository;
 import org.example.backend.service.EmailService;
+import org.example.backend.service.IdempotencyService;
 import org.example.backend.service.OrderService;
+import org.example.backend.service.VNPayIpnService;
+import org.example.backend.util.TxnRefGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
@@ -25,9 +29,6 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.view.RedirectView;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
@@ -40,16 +41,30 @@ public class PaymentController {
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final VNPayConfig vnpayConfig;
+    private final VNPayCodec vnpayCodec;
     private final EmailService emailService;
+    private final IdempotencyService idempotencyService;
+    private final VNPayIpnService vnpayIpnService;
+    private final TxnRefGenerator txnRefGenerator;
     private static final Logger logger = LoggerFactory.getLogger(PaymentController.class);
 
     @PostMapping("/create-vnpay")
-    public ResponseEntity<?> createVNPayPayment(HttpServletRequest request, @RequestBody Map<String, Object> requestBody) throws UnsupportedEncodingException {
+    public ResponseEntity<?> createVNPayPayment(HttpServletRequest request, @RequestBody Map<String, Object> requestBody,
+                                                @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        Long userId = getCurrentUserId();
+        if (userId == null) {
+            return ResponseEntity.status(401).body(createResponse(false, "Người dùng chưa được xác thực"));
+        }
+        return idempotencyService.execute("vnpay", userId, idempotencyKey, requestBody,
+                () -> createVNPayPayment(request, requestBody, userId));
+    }
+
+    private ResponseEntity<?> createVNPayPayment(HttpServletRequest request, Map<String, Object> requestBody, Long userId) {
         String vnp_Version = "2.1.0";
         String vnp_Command = "pay";
         String orderType = "210000";
         long amount = Long.parseLong(requestBody.get("amount").toString()) * 100;
-        String vnp_TxnRef = vnpayConfig.getRandomNumber(8);
+        String vnp_TxnRef = Long.toString(txnRefGenerator.nextId());
         String vnp_IpAddr = vnpayConfig.getIpAddress(request);
 
         // Lưu dữ liệu đơn hàng tạm thời
@@ -77,45 +92,11 @@ public class PaymentController {
         String vnp_ExpireDate = formatter.format(cld.getTime());
         vnp_Params.put("vnp_ExpireDate", vnp_ExpireDate);
 
-        List<String> fieldNames = new ArrayList<>(vnp_Params.keySet());
-        Collections.sort(fieldNames);
-        StringBuilder hashData = new StringBuilder();
-        StringBuilder query = new StringBuilder();
-        Iterator itr = fieldNames.iterator();
-        while (itr.hasNext()) {
-            String fieldName = (String) itr.next();
-            String fieldValue = (String) vnp_Params.get(fieldName);
-            if ((fieldValue != null) && (fieldValue.length() > 0)) {
-                hashData.append(fieldName);
-                hashData.append('=');
-                hashData.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII.toString()));
-                query.append(URLEncoder.encode(fieldName, StandardCharsets.US_ASCII.toString()));
-                query.append('=');
-                query.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII.toString()));
-                if (itr.hasNext()) {
-                    query.append('&');
-                    hashData.append('&');
-                }
-            }
-        }
-        String queryUrl = query.toString();
-        String vnp_SecureHash = vnpayConfig.hmacSHA512(vnpayConfig.getSecretKey(), hashData.toString());
-        logger.info("createVNPayPayment - hashData: {}", hashData.toString());
-        logger.info("createVNPayPayment - vnp_SecureHash: {}", vnp_SecureHash);
-        queryUrl += "&vnp_SecureHash=" + vnp_SecureHash;
+        String queryUrl = vnpayCodec.signedQuery(vnp_Params);
         String paymentUrl = vnpayConfig.getVnpPayUrl() + "?" + queryUrl;
 
-        // Lưu đơn hàng tạm thời với trạng thái PENDING
-        Long userId = getCurrentUserId();
-        if (userId == null) {
-            return ResponseEntity.status(401).body(createResponse(false, "Người dùng chưa được xác thực"));
-        }
-
-        //tạo order
-        Order order = orderService.createOrder(userId, orderData);
-        order.setVnpTxnRef(Long.parseLong(vnp_TxnRef));
-        order.setOrderStatus(OrderStatus.PENDING);
-        orderRepository.save(order);
+        //tạo order, giữ hàng đến vnp_ExpireDate
+        orderService.createVNPayOrder(userId, orderData, Long.parseLong(vnp_TxnRef), cld.getTime().toInstant());
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
@@ -126,7 +107,7 @@ public class PaymentController {
     }
 
     @GetMapping("/vnpay-return")
-    public RedirectView handleVNPayReturn(HttpServletRequest request) throws UnsupportedEncodingException {
+    public RedirectView handleVNPayReturn(HttpServletRequest request) {
         logger.info("===== Tham số trả về từ VNPay =====");
         Map<String, String> fields = new HashMap<>();
         for (Enumeration<String> params = request.getParameterNames(); params.hasMoreElements();) {
@@ -138,40 +119,38 @@ public class PaymentController {
             }
         }
 
-        String vnp_SecureHash = request.getParameter("vnp_SecureHash");
-        fields.remove("vnp_SecureHashType");
-        fields.remove("vnp_SecureHash");
-
-        String signData = vnpayConfig.hashAllFields(fields);
-        logger.info("Dữ liệu chữ ký (signData): {}", signData);
-        String calculatedHash = vnpayConfig.hmacSHA512(vnpayConfig.getSecretKey(), signData);
-        logger.info("Chữ ký tính toán: {}", calculatedHash);
-        logger.info("Chữ ký nhận được (vnp_SecureHash): {}", vnp_SecureHash);
+        boolean validSignature = vnpayCodec.verify(fields);
 
         String vnp_TxnRef = request.getParameter("vnp_TxnRef");
         Order order = orderRepository.findByVnpTxnRefWithDetails(Long.parseLong(vnp_TxnRef))
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy đơn hàng với vnp_TxnRef: " + vnp_TxnRef));
 
-        if (calculatedHash.equals(vnp_SecureHash)) {
+        PaymentConfirmation confirmation = null;
+        if (validSignature) {
             String vnp_ResponseCode = request.getParameter("vnp_ResponseCode");
             if ("00".equals(vnp_ResponseCode)) {
-                order.setOrderStatus(OrderStatus.CONFIRMED);
-                orderRepository.save(order);
-            } else {
-                order.setOrderStatus(OrderStatus.PENDING);
-                orderRepository.save(order);
+                confirmation = orderService.confirmOnlinePayment(order.getId());
             }
         } else {
-            order.setOrderStatus(OrderStatus.PENDING);
-            orderRepository.save(order);
-            logger.error("Chữ ký không hợp lệ. Kỳ vọng: {}, Nhận được: {}", calculatedHash, vnp_SecureHash);
+            logger.error("Chữ ký không hợp lệ cho vnp_TxnRef: {}", vnp_TxnRef);
         }
 
-        // Chuyển hướng đến frontend
+        // Chuyển hướng đến frontend, kèm kết quả để hiển thị trường hợp đơn đã hủy cần hoàn tiền
         String redirectUrl = "http://localhost:3000/confirm-order?txnRef=" + vnp_TxnRef;
+        if (confirmation != null) {
+            redirectUrl += "&paymentStatus=" + confirmation.name();
+        }
         return new RedirectView(redirectUrl);
     }
 
+    /**
+     * IPN: VNPay gọi trực tiếp tới server sau khi giao dịch kết thúc, không phụ thuộc trình duyệt của khách hàng.
+     */
+    @GetMapping("/vnpay-ipn")
+    public ResponseEntity<?> handleVNPayIpn(@RequestParam Map<String, String> params) {
+        return ResponseEntity.ok(vnpayIpnService.handle(params));
+    }
+
     @GetMapping("/order-details")
     public ResponseEntity<?> getOrderDetails(@RequestParam("txnRef") String txnRef) {
         Order order = orderRepository.findByVnpTxnRefWithDetails(Long.parseLong(txnRef))
@@ -3,11 +3,13 @@ package org.example.backend.controller;
 import lombok.RequiredArgsConstructor;
 import org.example.backend.dto.ProductDetailDTO;
 import org.example.backend.entity.*;
+import org.example.backend.event.ProductChangedEvent;
 import org.example.backend.repository.*;
 import org.example.backend.service.CloudinaryService;
 import org.example.backend.service.ProductService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -33,6 +35,7 @@ public class ProductAdminController {
     private final ImageRepository imageRepository;
     private final ProductImageRepository productImageRepository;
     private final CloudinaryService cloudinaryService;
+    private final ApplicationEventPublisher eventPublisher;
     private static final Logger logger = LoggerFactory.getLogger(ProductAdminController.class);
 
     @GetMapping("/brands")
@@ -209,6 +212,11 @@ public class ProductAdminController {
                 productRepository.save(savedProduct); // Lưu lại để cập nhật productImageList
             }
 
+            productRepository.refreshDisplayPrice(savedProduct.getId());
+
+            // Cập nhật chỉ mục tìm kiếm / bộ nhớ đệm đọc cho sản phẩm vừa thêm
+            eventPublisher.publishEvent(new ProductChangedEvent(savedProduct.getId()));
+
             return ResponseEntity.ok(Map.of("message", "Product added successfully"));
         } catch (Exception e) {
             logger.error("Error adding product: {}", e.getMessage(), e);
@@ -1,11 +1,18 @@
 package org.example.backend.controller;
 
 import lombok.RequiredArgsConstructor;
-import org.example.backend.dto.ProductDetailDTO;
+import org.example.backend.dto.ProductFilterResult;
 import org.example.backend.dto.ProductGridDTO;
+import org.example.backend.entity.Category;
 import org.example.backend.entity.Product;
+import org.example.backend.repository.CategoryRepository;
+import org.example.backend.service.ProductDetailCache;
+import org.example.backend.service.ProductFacetIndex;
 import org.example.backend.service.ProductService;
+import org.example.backend.service.ProductViewCounter;
+import org.example.backend.util.KeysetCursor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -13,20 +20,33 @@ import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/products")
 public class ProductController {
+    private static final int MAX_BATCH_SIZE = 100;
+
     private final ProductService productService;
+    private final CategoryRepository categoryRepository;
+    private final ProductDetailCache productDetailCache;
+    private final ProductViewCounter productViewCounter;
 
     @GetMapping("/grid")
     public ResponseEntity<Map<String, Object>> getProductsForGrid(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "8") int size) {
+            @RequestParam(defaultValue = "8") int size,
+            @RequestParam(required = false) String after) {
         if (page < 0 || size <= 0) {
             return ResponseEntity.badRequest().body(Map.of("error", "Tham số trang hoặc kích thước không hợp lệ"));
         }
+        if (after != null) {
+            return getProductsAfter(null, null, null, "id", "asc", after, size);
+        }
         Page<Product> productPage = productService.getAllProductsForGrid(page, size);
         List<ProductGridDTO> products = productService.mapToDTO(productPage);
         Map<String, Object> response = new HashMap<>();
@@ -61,7 +81,8 @@ public class ProductController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "8") int size,
             @RequestParam(defaultValue = "name") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortOrder) {
+            @RequestParam(defaultValue = "asc") String sortOrder,
+            @RequestParam(required = false) String after) {
         if (page < 0 || size <= 0) {
             return ResponseEntity.badRequest().body(Map.of("error", "Tham số trang hoặc kích thước không hợp lệ"));
         }
@@ -71,6 +92,9 @@ public class ProductController {
         if (!sortOrder.equalsIgnoreCase("asc") && !sortOrder.equalsIgnoreCase("desc")) {
             return ResponseEntity.badRequest().body(Map.of("error", "Tham số thứ tự không hợp lệ. Phải là 'asc' hoặc 'desc'"));
         }
+        if (after != null) {
+            return getProductsAfter(keyword, null, null, sortBy, sortOrder, after, size);
+        }
         Page<Product> productPage = productService.getSortedProducts(keyword, page, size, sortBy, sortOrder);
         List<ProductGridDTO> products = productService.mapToDTO(productPage);
         Map<String, Object> response = new HashMap<>();
@@ -81,15 +105,23 @@ public class ProductController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Lọc theo facet: category, brand và price (khóa khoảng giá) có thể truyền nhiều giá trị
+     * (?category=A&amp;category=B), inStock=true chỉ lấy sản phẩm còn hàng. Phản hồi kèm "facets"
+     * là số lượng sản phẩm theo từng giá trị facet với bộ lọc hiện tại.
+     */
     @GetMapping("/filter")
     public ResponseEntity<Map<String, Object>> getFilteredProducts(
             @RequestParam(defaultValue = "") String keyword,
-            @RequestParam(defaultValue = "") String category,
-            @RequestParam(defaultValue = "") String brand,
+            @RequestParam(required = false) List<String> category,
+            @RequestParam(required = false) List<String> brand,
+            @RequestParam(required = false) List<String> price,
+            @RequestParam(defaultValue = "false") boolean inStock,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "8") int size,
             @RequestParam(defaultValue = "name") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortOrder) {
+            @RequestParam(defaultValue = "asc") String sortOrder,
+            @RequestParam(required = false) String after) {
         if (page < 0 || size <= 0) {
             return ResponseEntity.badRequest().body(Map.of("error", "Tham số trang hoặc kích thước không hợp lệ"));
         }
@@ -99,40 +131,125 @@ public class ProductController {
         if (!sortOrder.equalsIgnoreCase("asc") && !sortOrder.equalsIgnoreCase("desc")) {
             return ResponseEntity.badRequest().body(Map.of("error", "Tham số thứ tự không hợp lệ. Phải là 'asc' hoặc 'desc'"));
         }
-        String categoryParam = category.isBlank() ? null : category;
-        String brandParam = brand.isBlank() ? null : brand;
-        Page<Product> productPage = productService.getFilteredProducts(keyword, categoryParam, brandParam, page, size, sortBy, sortOrder);
-        List<ProductGridDTO> products = productService.mapToDTO(productPage);
-        Map<String, Object> response = new HashMap<>();
-        response.put("products", products);
-        response.put("totalPages", productPage.getTotalPages());
-        response.put("currentPage", productPage.getNumber());
-        response.put("totalItems", productPage.getTotalElements());
-        return ResponseEntity.ok(response);
+        Set<String> priceBuckets = toFacetValues(price);
+        for (String bucket : priceBuckets) {
+            if (!ProductFacetIndex.isPriceBucket(bucket)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Khoảng giá không hợp lệ: " + bucket));
+            }
+        }
+        ProductFacetIndex.Selection selection = new ProductFacetIndex.Selection(
+                toFacetValues(category), toFacetValues(brand), priceBuckets, inStock);
+        try {
+            ProductFilterResult result = productService.getFilteredProducts(keyword, selection, page, size, sortBy, sortOrder,
+                    after != null ? KeysetCursor.decode(after) : null);
+            Map<String, Object> response = new HashMap<>();
+            response.put("products", productService.mapIdsToGridDTO(result.getProductIds()));
+            response.put("facets", result.getFacets());
+            if (after != null) {
+                response.put("nextCursor", result.getNextCursor());
+                response.put("hasNext", result.isHasNext());
+            } else {
+                response.put("totalPages", (int) Math.ceil((double) result.getTotalItems() / size));
+                response.put("currentPage", page);
+                response.put("totalItems", result.getTotalItems());
+            }
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/bestsellers")
     public ResponseEntity<Map<String, Object>> getBestSellers(
-            @RequestParam(defaultValue = "6") int size) {
+            @RequestParam(defaultValue = "6") int size,
+            @RequestParam(defaultValue = "") String category,
+            @RequestParam(required = false) Integer days) {
         if (size <= 0) {
             return ResponseEntity.badRequest().body(Map.of("error", "Tham số kích thước không hợp lệ"));
         }
-        List<Product> bestSellers = productService.getBestSellers(size);
-        List<ProductGridDTO> products = productService.mapToDTO(bestSellers);
+        if (days != null && days != 7 && days != 30) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Tham số số ngày không hợp lệ. Phải là 7 hoặc 30"));
+        }
+        Long categoryId = null;
+        if (!category.isBlank()) {
+            Optional<Category> found = categoryRepository.findByName(category);
+            if (found.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Không tìm thấy danh mục: " + category));
+            }
+            categoryId = found.get().getId();
+        }
+        List<ProductGridDTO> products = productService.getBestSellers(size, categoryId, days);
         Map<String, Object> response = new HashMap<>();
         response.put("products", products);
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/most-viewed")
+    public ResponseEntity<Map<String, Object>> getMostViewed(@RequestParam(defaultValue = "6") int size) {
+        if (size <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Tham số kích thước không hợp lệ"));
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("products", productService.getMostViewed(size));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Lấy nhiều sản phẩm trong một yêu cầu (?ids=1,2,3), trả về theo thứ tự ids.
+     * view=detail trả về ProductDetailDTO, view=grid trả về ProductGridDTO.
+     */
+    @GetMapping("/batch")
+    public ResponseEntity<Map<String, Object>> getProductsBatch(
+            @RequestParam List<Long> ids,
+            @RequestParam(defaultValue = "detail") String view) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (distinctIds.isEmpty() || distinctIds.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Danh sách ids phải có từ 1 đến " + MAX_BATCH_SIZE + " sản phẩm"));
+        }
+        if (!view.equals("detail") && !view.equals("grid")) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Tham số view không hợp lệ. Phải là 'detail' hoặc 'grid'"));
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("products", view.equals("grid")
+                ? productService.mapIdsToGridDTO(distinctIds)
+                : productService.getProductDetailsBatch(distinctIds));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Chế độ phân trang keyset (?after=&lt;con trỏ&gt;, chuỗi rỗng = trang đầu): không trả về totalPages/totalItems
+     * mà trả về nextCursor để lấy trang kế tiếp.
+     */
+    private ResponseEntity<Map<String, Object>> getProductsAfter(String keyword, String category, String brand,
+                                                                 String sortBy, String sortOrder, String after, int size) {
+        try {
+            Slice<Product> productSlice = productService.getProductsAfter(keyword, category, brand, sortBy, sortOrder,
+                    KeysetCursor.decode(after), size);
+            Map<String, Object> response = new HashMap<>();
+            response.put("products", productService.mapToDTO(productSlice.getContent()));
+            response.put("nextCursor", productService.nextCursor(productSlice, sortBy));
+            response.put("hasNext", productSlice.hasNext());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private Set<String> toFacetValues(List<String> values) {
+        if (values == null) {
+            return Set.of();
+        }
+        return values.stream()
+                .filter(value -> value != null && !value.isBlank())
+                .collect(Collectors.toSet());
+    }
+
     @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> getProductDetails(@PathVariable Long id) {
         try {
-            ProductDetailDTO product = productService.getProductDetails(id);
-            if (product == null) {
-                return ResponseEntity.status(404)
-                        .body(Map.of("error", "Không tìm thấy sản phẩm với ID: " + id));
-            }
-            return ResponseEntity.ok(product);
+            byte[] product = productDetailCache.getProductDetailsJson(id);
+            productViewCounter.recordView(id);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(product);
         } catch (RuntimeException e) {
             return ResponseEntity.status(400)
                     .body(Map.of("error", e.getMessage()));
@@ -0,0 +1,21 @@
+package org.example.backend.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+import org.example.backend.enums.OrderStatus;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BulkStatusRequest {
+    @NotEmpty(message = "Danh sách đơn hàng không được để trống")
+    @Size(max = 1000, message = "Tối đa 1000 đơn hàng mỗi lần cập nhật")
+    private List<Long> orderIds;
+
+    @NotNull(message = "Trạng thái không được để trống")
+    private OrderStatus status;
+}
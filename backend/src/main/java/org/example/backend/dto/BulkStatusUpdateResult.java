@@ -0,0 +1,17 @@
+package org.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kết quả cập nhật trạng thái hàng loạt: các đơn đã cập nhật và lý do thất bại theo từng id đơn.
+ */
+@Getter
+@AllArgsConstructor
+public class BulkStatusUpdateResult {
+    private List<Long> updated;
+    private Map<Long, String> failed;
+}
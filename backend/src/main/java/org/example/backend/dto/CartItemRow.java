@@ -0,0 +1,15 @@
+package org.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Dòng giỏ hàng tối giản (không load entity) dùng để so sánh khi đồng bộ giỏ hàng.
+ */
+@Getter
+@AllArgsConstructor
+public class CartItemRow {
+    private Long id;
+    private Long productVariantId;
+    private Integer quantity;
+}
@@ -0,0 +1,18 @@
+package org.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Doanh thu và số lượng bán của một danh mục (theo một đơn hàng hoặc cộng dồn từ bảng tổng hợp).
+ */
+@Getter
+@AllArgsConstructor
+public class CategorySalesRow {
+    private Long categoryId;
+    private String categoryName;
+    private BigDecimal revenue;
+    private Long units;
+}
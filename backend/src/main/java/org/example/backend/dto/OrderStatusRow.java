@@ -0,0 +1,15 @@
+package org.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.backend.enums.OrderStatus;
+
+/**
+ * Id và trạng thái hiện tại của một đơn hàng, dùng khi kiểm tra chuyển trạng thái hàng loạt.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderStatusRow {
+    private Long id;
+    private OrderStatus orderStatus;
+}
@@ -0,0 +1,20 @@
+package org.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kết quả lọc sản phẩm theo facet: id sản phẩm của trang hiện tại (đã sắp xếp) và số lượng theo từng giá trị facet.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductFilterResult {
+    private List<Long> productIds;
+    private long totalItems;
+    private boolean hasNext;
+    private String nextCursor;
+    private Map<String, Map<String, Integer>> facets;
+}
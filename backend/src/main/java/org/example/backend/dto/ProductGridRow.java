@@ -0,0 +1,26 @@
+package org.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Một dòng phẳng (sản phẩm x biến thể) đọc trực tiếp bằng một truy vấn projection
+ * để dựng {@link ProductGridDTO} mà không phải load lười từng biến thể / ảnh.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductGridRow {
+    private Long productId;
+    private String name;
+    private String description;
+    private String brand;
+    private String category;
+    private Long variantId;
+    private BigDecimal price;
+    private Integer quantity;
+    private String productAttribute;
+    private String variant;
+    private String mainImagePublicId;
+}
@@ -0,0 +1,15 @@
+package org.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Số lượng đã bán của một sản phẩm trong một đơn hàng (đã cộng dồn các biến thể).
+ */
+@Getter
+@AllArgsConstructor
+public class ProductUnitsRow {
+    private Long productId;
+    private Long categoryId;
+    private Long units;
+}
@@ -10,7 +10,7 @@ import java.util.List;
 @Getter
 @Setter
 @Entity
-@Table(name = "cart")
+@Table(name = "cart", indexes = @Index(name = "idx_cart_user", columnList = "user_id"))
 public class Cart {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
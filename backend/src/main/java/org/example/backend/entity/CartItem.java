@@ -7,7 +7,8 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
-@Table(name = "cartitem")
+@Table(name = "cartitem", uniqueConstraints = @UniqueConstraint(name = "uk_cartitem_cart_variant",
+        columnNames = {"cart_id", "product_variant_id"}))
 public class CartItem {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -7,7 +7,8 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
-@Table(name = "evoucher")
+@Table(name = "evoucher", uniqueConstraints = @UniqueConstraint(name = "uk_evoucher_user_voucher",
+        columnNames = {"user_id", "voucher_id"}))
 public class EVoucher {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
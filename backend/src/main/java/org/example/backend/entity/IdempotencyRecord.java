@@ -0,0 +1,52 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Kết quả đã lưu của một yêu cầu tạo đơn / thanh toán theo header Idempotency-Key.
+ * Khóa duy nhất trên idem_key đảm bảo chỉ một lần thực thi kể cả khi chạy nhiều instance.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "idempotency_record",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_record_key", columnNames = "idem_key"),
+        indexes = @Index(name = "idx_idempotency_record_expires_at", columnList = "expires_at"))
+public class IdempotencyRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    // scope:userId:Idempotency-Key
+    @Column(name = "idem_key", nullable = false, length = 200)
+    private String idemKey;
+
+    // SHA-256 của body yêu cầu, để phát hiện cùng key nhưng khác nội dung
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "completed", nullable = false)
+    private boolean completed;
+
+    // Hạn lease của lần thực thi đang chạy (null khi đã hoàn tất); quá hạn thì yêu cầu lặp lại được nhận lại key
+    @Column(name = "in_progress_until")
+    private Instant inProgressUntil;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Lob
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
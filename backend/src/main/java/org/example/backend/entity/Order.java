@@ -13,7 +13,12 @@ import java.util.List;
 @Getter
 @Setter
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_status_booking_date", columnList = "order_status, booking_date"),
+        @Index(name = "idx_orders_user_booking_date", columnList = "user_id, booking_date"),
+        @Index(name = "idx_orders_vnp_txn_ref", columnList = "vnp_txn_ref"),
+        @Index(name = "idx_orders_refund_required", columnList = "refund_required")
+})
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -61,6 +66,10 @@ public class Order {
     @Column(name = "vnp_txn_ref")
     private Long vnpTxnRef;
 
+    // Đã nhận thanh toán online cho đơn không thể khôi phục (xem PaymentConfirmation.REFUND_REQUIRED)
+    @Column(name = "refund_required", nullable = false)
+    private boolean refundRequired;
+
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<OrderDetail> orderDetails = new ArrayList<>();
 }
\ No newline at end of file
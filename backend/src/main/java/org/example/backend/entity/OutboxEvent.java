@@ -0,0 +1,55 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.example.backend.enums.OutboxEventType;
+
+import java.time.Instant;
+
+/**
+ * Tác vụ phụ cần chạy sau khi transaction đặt hàng commit (transactional outbox).
+ * Được ghi cùng transaction với đơn hàng và xóa sau khi OutboxDispatcher xử lý thành công.
+ * Tác vụ vượt quá outbox.max-attempts được giữ lại với dead_at để tra cứu và chạy lại thủ công.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "outbox_event", indexes = {
+        @Index(name = "idx_outbox_event_next_attempt", columnList = "next_attempt_at"),
+        @Index(name = "idx_outbox_event_claim_token", columnList = "claim_token")
+})
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 50)
+    private OutboxEventType eventType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "dead_at")
+    private Instant deadAt;
+}
@@ -0,0 +1,35 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Đánh dấu một consumer đã áp dụng một sự kiện của đơn hàng. Outbox giao sự kiện ít nhất một lần,
+ * nên các bảng đếm / tổng hợp ghi dấu ở đây trong cùng transaction với phần cộng dồn và bỏ qua lần lặp lại.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "processed_order_event",
+        uniqueConstraints = @UniqueConstraint(name = "uk_processed_order_event", columnNames = {"consumer", "order_id", "event"}))
+public class ProcessedOrderEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "consumer", nullable = false, length = 50)
+    private String consumer;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "event", nullable = false, length = 30)
+    private String event;
+
+    @Column(name = "processed_at", nullable = false)
+    private Instant processedAt;
+}
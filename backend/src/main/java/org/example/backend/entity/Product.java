@@ -4,12 +4,17 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Getter
 @Setter
 @Entity
-@Table(name = "product")
+@Table(name = "product", indexes = {
+        @Index(name = "idx_product_display_price", columnList = "display_price"),
+        @Index(name = "idx_product_category_display_price", columnList = "category_id, display_price"),
+        @Index(name = "idx_product_view_count", columnList = "view_count")
+})
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,9 +36,15 @@ public class Product {
     @JoinColumn(name = "category_id")
     private Category category;
 
-    @Column(name = "view_count")
+    // Do ProductViewCounter cộng dồn trực tiếp trong DB, JPA không ghi đè khi cập nhật entity
+    @Column(name = "view_count", updatable = false)
     private Integer viewCount;
 
+    // Giá thấp nhất trong các biến thể (0 nếu chưa có), dùng để sắp xếp / phân trang theo giá trên chỉ mục.
+    // Do ProductRepository.refreshDisplayPrice tính trong DB sau mỗi lần ghi biến thể, JPA không ghi cột này
+    @Column(name = "display_price", precision = 15, scale = 3, insertable = false, updatable = false)
+    private BigDecimal displayPrice;
+
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ProductVariant> productVariantList;
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Tổng số lượng đã bán của từng sản phẩm, cập nhật dần khi đơn hàng được tạo / bị hủy.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "product_sales")
+public class ProductSales {
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(name = "units_sold", nullable = false)
+    private Long unitsSold;
+}
@@ -0,0 +1,35 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Số lượng đã bán của từng sản phẩm theo ngày, dùng cho bảng xếp hạng 7 / 30 ngày gần nhất.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "product_sales_daily",
+        uniqueConstraints = @UniqueConstraint(name = "uk_product_sales_daily", columnNames = {"product_id", "sales_date"}),
+        indexes = @Index(name = "idx_product_sales_daily_date", columnList = "sales_date"))
+public class ProductSalesDaily {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    @Column(name = "units_sold", nullable = false)
+    private Long unitsSold;
+}
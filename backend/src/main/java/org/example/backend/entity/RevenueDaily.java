@@ -0,0 +1,27 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Doanh thu (tổng tiền đơn) và số đơn đã giao thành công theo ngày giao, dùng cho chuỗi thời gian doanh thu.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "revenue_daily")
+public class RevenueDaily {
+    @Id
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    @Column(name = "revenue", precision = 15, scale = 3, nullable = false)
+    private BigDecimal revenue;
+
+    @Column(name = "orders_count", nullable = false)
+    private Long ordersCount;
+}
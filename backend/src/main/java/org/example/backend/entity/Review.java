@@ -11,7 +11,7 @@ import java.util.List;
 @Getter
 @Setter
 @Entity
-@Table(name = "review")
+@Table(name = "review", indexes = @Index(name = "idx_review_product_accept", columnList = "product_id, is_accept"))
 public class Review {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,35 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Doanh thu và số lượng bán của các đơn đã giao thành công, tổng hợp theo ngày giao × danh mục.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "sales_rollup_daily",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sales_rollup_daily", columnNames = {"sales_date", "category_id"}))
+public class SalesRollupDaily {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    @Column(name = "revenue", precision = 15, scale = 3, nullable = false)
+    private BigDecimal revenue;
+
+    @Column(name = "units_sold", nullable = false)
+    private Long unitsSold;
+}
@@ -0,0 +1,38 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Số lượng tồn kho đang được giữ cho một đơn thanh toán online chưa hoàn tất.
+ * Hết hạn mà đơn vẫn chờ thanh toán thì số lượng được trả lại kho và đơn bị hủy.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "stock_reservation",
+        indexes = {
+                @Index(name = "idx_stock_reservation_expires_at", columnList = "expires_at"),
+                @Index(name = "idx_stock_reservation_order", columnList = "order_id")
+        })
+public class StockReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "product_variant_id", nullable = false)
+    private Long productVariantId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
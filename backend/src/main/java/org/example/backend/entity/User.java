@@ -12,7 +12,10 @@ import java.time.Instant;
 @Setter
 @Data
 @Entity
-@Table(name = "user")
+@Table(name = "user", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_user_email", columnNames = "email"),
+        @UniqueConstraint(name = "uk_user_phone", columnNames = "phone")
+})
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -47,4 +50,16 @@ public class User {
 
     @Column(length = 512)
     private String tokenVersion;
-}
\ No newline at end of file
+
+    // Email / số điện thoại là khóa duy nhất: giá trị rỗng lưu thành NULL để nhiều tài khoản cùng có thể bỏ trống
+    @PrePersist
+    @PreUpdate
+    private void blankContactsToNull() {
+        if (email != null && email.isBlank()) {
+            email = null;
+        }
+        if (phone != null && phone.isBlank()) {
+            phone = null;
+        }
+    }
+}
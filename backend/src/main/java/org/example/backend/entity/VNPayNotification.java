@@ -0,0 +1,38 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * IPN VNPay đã được xử lý. Khóa duy nhất trên vnp_txn_ref đảm bảo mỗi giao dịch chỉ được áp dụng
+ * một lần dù VNPay gửi lại nhiều lần hoặc nhiều instance nhận cùng lúc.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "vnpay_notification",
+        uniqueConstraints = @UniqueConstraint(name = "uk_vnpay_notification_txn_ref", columnNames = "vnp_txn_ref"))
+public class VNPayNotification {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "vnp_txn_ref", nullable = false)
+    private Long vnpTxnRef;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "response_code", length = 10)
+    private String responseCode;
+
+    @Column(name = "transaction_no", length = 50)
+    private String transactionNo;
+
+    @Column(name = "received_at", nullable = false)
+    private Instant receivedAt;
+}
@@ -7,7 +7,8 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
-@Table(name = "wishlist_item")
+@Table(name = "wishlist_item", uniqueConstraints = @UniqueConstraint(name = "uk_wishlist_item_user_product",
+        columnNames = {"user_id", "product_id"}))
 public class WishlistItem {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
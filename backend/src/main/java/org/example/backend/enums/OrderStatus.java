@@ -1,5 +1,10 @@
 package org.example.backend.enums;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum OrderStatus {
     PENDING,      // Chờ xác nhận
     CONFIRMED,    // Đã xác nhận
@@ -7,5 +12,36 @@ public enum OrderStatus {
     DELIVERED,
     RQ_CANCELED,// Giao thành công
     CANCELLED,     // Đã hủy
-    REFUSED, // Đã từ chối
-}
\ No newline at end of file
+    REFUSED; // Đã từ chối
+
+    // Bảng chuyển trạng thái hợp lệ; trạng thái không có trong bảng (DELIVERED, CANCELLED, REFUSED) là trạng thái cuối
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        TRANSITIONS.put(PENDING, EnumSet.of(CONFIRMED, CANCELLED, REFUSED));
+        TRANSITIONS.put(CONFIRMED, EnumSet.of(ON_DELIVERY, CANCELLED, REFUSED));
+        TRANSITIONS.put(ON_DELIVERY, EnumSet.of(DELIVERED, CANCELLED));
+        // Như luồng cũ: đơn đang yêu cầu hủy không bị giới hạn trạng thái kế tiếp
+        TRANSITIONS.put(RQ_CANCELED, EnumSet.allOf(OrderStatus.class));
+    }
+
+    public boolean isFinal() {
+        return !TRANSITIONS.containsKey(this);
+    }
+
+    public boolean canTransitionTo(OrderStatus next) {
+        return TRANSITIONS.getOrDefault(this, EnumSet.noneOf(OrderStatus.class)).contains(next);
+    }
+
+    /**
+     * Kiểm tra chuyển trạng thái, ném IllegalStateException kèm lý do nếu không hợp lệ.
+     */
+    public void requireTransitionTo(OrderStatus next) {
+        if (isFinal()) {
+            throw new IllegalStateException("Không thể cập nhật trạng thái của đơn hàng đã hoàn thành hoặc đã hủy.");
+        }
+        if (!canTransitionTo(next)) {
+            throw new IllegalStateException("Ở trạng thái " + this + " chỉ có thể chuyển sang " + TRANSITIONS.get(this) + ".");
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.backend.enums;
+
+public enum OutboxEventType {
+    ORDER_PLACED,               // Cập nhật thống kê bán hàng (aggregateId = id đơn hàng)
+    PRODUCT_CHANGED,            // Làm mới chỉ mục / cache của sản phẩm (aggregateId = id sản phẩm)
+    ORDER_CONFIRMATION_EMAIL    // Gửi email xác nhận đơn hàng (aggregateId = id đơn hàng)
+}
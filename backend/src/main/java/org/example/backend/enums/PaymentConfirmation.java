@@ -0,0 +1,11 @@
+package org.example.backend.enums;
+
+/**
+ * Kết quả xác nhận một thanh toán online thành công cho đơn hàng.
+ */
+public enum PaymentConfirmation {
+    CONFIRMED,          // Đơn PENDING được chuyển sang CONFIRMED
+    REVIVED,            // Đơn đã bị hủy do quá hạn giữ hàng, trừ lại được tồn kho và chuyển sang CONFIRMED
+    ALREADY_CONFIRMED,  // Đơn đã được xác nhận / xử lý trước đó, không thay đổi gì
+    REFUND_REQUIRED     // Đơn đã hủy và không thể khôi phục (hết hàng / trạng thái khác): cần hoàn tiền, xử lý thủ công
+}
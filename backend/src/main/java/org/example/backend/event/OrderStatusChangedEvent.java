@@ -0,0 +1,16 @@
+package org.example.backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.backend.enums.OrderStatus;
+
+/**
+ * Phát ra khi trạng thái một đơn hàng chuyển từ previousStatus sang newStatus.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderStatusChangedEvent {
+    private final Long orderId;
+    private final OrderStatus previousStatus;
+    private final OrderStatus newStatus;
+}
@@ -0,0 +1,14 @@
+package org.example.backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Phát ra khi dữ liệu của một sản phẩm (thông tin, biến thể, giá, ảnh) thay đổi,
+ * để các chỉ mục / bộ nhớ đệm đọc cập nhật lại sản phẩm đó.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+    private final Long productId;
+}
@@ -1,12 +1,16 @@
 package org.example.backend.repository;
 
+import org.example.backend.dto.CartItemRow;
 import org.example.backend.entity.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
@@ -19,5 +23,30 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
             "WHERE ci.cart.id = :cartId")
     List<CartItem> findByCartIdWithImages(@Param("cartId") Long cartId);
 
+    @Query("SELECT ci FROM CartItem ci " +
+            "JOIN FETCH ci.productVariant pv " +
+            "JOIN FETCH pv.product p " +
+            "JOIN FETCH p.brand " +
+            "JOIN FETCH p.category " +
+            "LEFT JOIN FETCH pv.productImageList pi " +
+            "WHERE ci.cart.id = :cartId AND pv.id = :productVariantId")
+    Optional<CartItem> findByCartIdAndProductVariantIdWithImages(@Param("cartId") Long cartId,
+                                                                 @Param("productVariantId") Long productVariantId);
+
+    // Thêm vào giỏ trong một câu lệnh: dựa vào khóa duy nhất (cart_id, product_variant_id) để cộng dồn số lượng
+    @Modifying
+    @Query(value = "INSERT INTO cartitem (cart_id, product_variant_id, quantity) VALUES (:cartId, :productVariantId, :quantity) " +
+            "ON DUPLICATE KEY UPDATE quantity = quantity + :quantity", nativeQuery = true)
+    void upsertQuantity(@Param("cartId") Long cartId, @Param("productVariantId") Long productVariantId,
+                        @Param("quantity") int quantity);
+
+    @Query("SELECT new org.example.backend.dto.CartItemRow(ci.id, ci.productVariant.id, ci.quantity) " +
+            "FROM CartItem ci WHERE ci.cart.id = :cartId")
+    List<CartItemRow> findRowsByCartId(@Param("cartId") Long cartId);
+
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.id IN :ids")
+    void deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+
     void deleteByCartId(Long cartId);
 }
\ No newline at end of file
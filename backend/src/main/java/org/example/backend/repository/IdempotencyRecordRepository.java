@@ -0,0 +1,38 @@
+package org.example.backend.repository;
+
+import org.example.backend.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    Optional<IdempotencyRecord> findByIdemKey(String idemKey);
+
+    // Nhận lại một key đang xử lý nhưng lease đã hết hạn (instance giữ key đã dừng giữa chừng)
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.inProgressUntil = :lease, r.requestHash = :requestHash, r.createdAt = :now, r.expiresAt = :expiresAt " +
+            "WHERE r.id = :id AND r.completed = false AND (r.inProgressUntil IS NULL OR r.inProgressUntil < :now)")
+    int takeOver(Long id, String requestHash, Instant now, Instant lease, Instant expiresAt);
+
+    // Chỉ ghi được khi vẫn còn giữ đúng lease; chạy trong transaction của action
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.completed = true, r.responseStatus = :status, r.responseBody = :body, r.inProgressUntil = NULL " +
+            "WHERE r.id = :id AND r.completed = false AND r.inProgressUntil = :lease")
+    int complete(Long id, Instant lease, Integer status, String body);
+
+    // Nhả key sau khi action lỗi, chỉ khi key vẫn thuộc về lần thực thi này
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.completed = false AND r.inProgressUntil = :lease")
+    int deleteInProgress(Long id, Instant lease);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
@@ -1,11 +1,23 @@
 package org.example.backend.repository;
 
+import org.example.backend.dto.CategorySalesRow;
+import org.example.backend.dto.ProductUnitsRow;
 import org.example.backend.entity.OrderDetail;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
 public interface OrderDetailRepository extends JpaRepository<OrderDetail, Long> {
     List<OrderDetail> findByOrderId(Long orderId);
 
+    @Query("SELECT new org.example.backend.dto.ProductUnitsRow(p.id, p.category.id, SUM(od.quantity)) " +
+            "FROM OrderDetail od JOIN od.variant v JOIN v.product p " +
+            "WHERE od.order.id = :orderId GROUP BY p.id, p.category.id")
+    List<ProductUnitsRow> findProductUnitsByOrderId(Long orderId);
+
+    @Query("SELECT new org.example.backend.dto.CategorySalesRow(c.id, c.name, SUM(od.priceWithQuantity), SUM(od.quantity)) " +
+            "FROM OrderDetail od JOIN od.variant v JOIN v.product p JOIN p.category c " +
+            "WHERE od.order.id = :orderId GROUP BY c.id, c.name")
+    List<CategorySalesRow> findCategorySalesByOrderId(Long orderId);
 }
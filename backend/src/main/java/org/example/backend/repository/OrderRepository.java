@@ -1,16 +1,27 @@
 package org.example.backend.repository;
 
+import org.example.backend.dto.OrderStatusRow;
 import org.example.backend.entity.Order;
 import org.example.backend.enums.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
+    // Các truy vấn danh sách đơn hàng load kèm user, role và payment trong cùng một câu SELECT (tránh N+1 khi dựng OrderResponseDTO)
+    @Override
+    @EntityGraph(attributePaths = {"user", "user.role", "payment"})
+    Page<Order> findAll(Pageable pageable);
+
     @Query("SELECT o FROM Order o ORDER BY o.bookingDate DESC")
     List<Order> findAll();
 
@@ -19,21 +30,61 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT o FROM Order o WHERE o.user.id = :userId ORDER BY o.bookingDate DESC")
     List<Order> findByUserId(Long userId);
 
+    @EntityGraph(attributePaths = {"user", "user.role", "payment"})
     @Query("SELECT o FROM Order o WHERE o.user.id = :userId ORDER BY o.bookingDate DESC")
     Page<Order> findByUserId(Long userId, Pageable pageable);
 
-    @Query("SELECT o FROM Order o WHERE o.orderStatus = :status ORDER BY o.bookingDate DESC")
-    List<Order> findByOrderStatus(OrderStatus status);
-
+    @EntityGraph(attributePaths = {"user", "user.role", "payment"})
     @Query("SELECT o FROM Order o WHERE o.orderStatus = :status ORDER BY o.bookingDate DESC")
     Page<Order> findByOrderStatus(OrderStatus status, Pageable pageable);
 
+    @EntityGraph(attributePaths = {"user", "user.role", "payment"})
     @Query("SELECT o FROM Order o WHERE o.user.id = :userId AND o.orderStatus = :status ORDER BY o.bookingDate DESC")
     Page<Order> findByUserIdAndOrderStatus(Long userId, OrderStatus status, Pageable pageable);
 
     @Query("SELECT o FROM Order o LEFT JOIN FETCH o.orderDetails od LEFT JOIN FETCH od.variant v LEFT JOIN FETCH v.product WHERE o.vnpTxnRef = :vnpTxnRef")
     Optional<Order> findByVnpTxnRefWithDetails(Long vnpTxnRef);
 
-    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.orderDetails od LEFT JOIN FETCH od.variant v LEFT JOIN FETCH v.product WHERE o.id = :id")
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.user LEFT JOIN FETCH o.orderDetails od LEFT JOIN FETCH od.variant v LEFT JOIN FETCH v.product WHERE o.id = :id")
     Optional<Order> findByIdWithDetails(Long id);
-}
\ No newline at end of file
+
+    // Chuyển trạng thái có điều kiện: chỉ cập nhật khi đơn vẫn đang ở trạng thái expected
+    @Modifying
+    @Query("UPDATE Order o SET o.orderStatus = :next WHERE o.id = :id AND o.orderStatus = :expected")
+    int compareAndSetStatus(Long id, OrderStatus expected, OrderStatus next);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.orderStatus = :next, o.deliveryDate = :deliveryDate WHERE o.id = :id AND o.orderStatus = :expected")
+    int compareAndSetStatus(Long id, OrderStatus expected, OrderStatus next, Instant deliveryDate);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.refundRequired = true WHERE o.id = :id")
+    int markRefundRequired(Long id);
+
+    @Query("SELECT o.orderStatus FROM Order o WHERE o.id = :id")
+    Optional<OrderStatus> findStatusById(Long id);
+
+    @Query("SELECT new org.example.backend.dto.OrderStatusRow(o.id, o.orderStatus) FROM Order o WHERE o.id IN :ids")
+    List<OrderStatusRow> findStatusRowsByIdIn(Collection<Long> ids);
+
+    // Phiên bản set-based của compareAndSetStatus cho cả một nhóm đơn cùng trạng thái hiện tại
+    @Modifying
+    @Query("UPDATE Order o SET o.orderStatus = :next WHERE o.id IN :ids AND o.orderStatus = :expected")
+    int compareAndSetStatusIn(Collection<Long> ids, OrderStatus expected, OrderStatus next);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.orderStatus = :next, o.deliveryDate = :deliveryDate WHERE o.id IN :ids AND o.orderStatus = :expected")
+    int compareAndSetStatusIn(Collection<Long> ids, OrderStatus expected, OrderStatus next, Instant deliveryDate);
+
+    // Phân trang keyset theo (bookingDate, id) giảm dần
+    @EntityGraph(attributePaths = {"user", "user.role", "payment"})
+    @Query("SELECT o FROM Order o WHERE (:id IS NULL OR o.bookingDate < :bookingDate OR (o.bookingDate = :bookingDate AND o.id < :id)) " +
+            "ORDER BY o.bookingDate DESC, o.id DESC")
+    Slice<Order> findAllKeyset(Instant bookingDate, Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "user.role", "payment"})
+    @Query("SELECT o FROM Order o WHERE o.user.id = :userId " +
+            "AND (:id IS NULL OR o.bookingDate < :bookingDate OR (o.bookingDate = :bookingDate AND o.id < :id)) " +
+            "ORDER BY o.bookingDate DESC, o.id DESC")
+    Slice<Order> findByUserIdKeyset(Long userId, Instant bookingDate, Long id, Pageable pageable);
+}
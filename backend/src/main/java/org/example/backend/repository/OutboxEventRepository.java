@@ -0,0 +1,29 @@
+package org.example.backend.repository;
+
+import org.example.backend.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.deadAt IS NULL AND e.nextAttemptAt <= :now " +
+            "AND (e.lockedUntil IS NULL OR e.lockedUntil < :now) ORDER BY e.id")
+    List<Long> findDueIds(@Param("now") Instant now, Pageable pageable);
+
+    // Chỉ các dòng chưa bị instance khác giữ lease mới được nhận; trả về số dòng nhận được
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.lockedUntil = :lockedUntil, e.claimToken = :token " +
+            "WHERE e.id IN :ids AND e.deadAt IS NULL AND (e.lockedUntil IS NULL OR e.lockedUntil < :now)")
+    int claim(@Param("ids") Collection<Long> ids, @Param("token") String token,
+              @Param("now") Instant now, @Param("lockedUntil") Instant lockedUntil);
+
+    List<OutboxEvent> findByClaimTokenOrderById(String claimToken);
+}
@@ -0,0 +1,35 @@
+package org.example.backend.repository;
+
+import org.example.backend.entity.ProcessedOrderEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+public interface ProcessedOrderEventRepository extends JpaRepository<ProcessedOrderEvent, Long> {
+    // Trả về 1 nếu đây là lần đầu consumer xử lý (order_id, event), 0 nếu đã xử lý trước đó
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO processed_order_event (consumer, order_id, event, processed_at) " +
+            "VALUES (:consumer, :orderId, :event, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int markProcessed(@Param("consumer") String consumer, @Param("orderId") Long orderId, @Param("event") String event);
+
+    @Modifying
+    @Query(value = "DELETE FROM processed_order_event WHERE consumer = :consumer AND order_id = :orderId AND event = :event", nativeQuery = true)
+    int unmarkProcessed(@Param("consumer") String consumer, @Param("orderId") Long orderId, @Param("event") String event);
+
+    // Đánh dấu các sự kiện đã được tính vào một lần backfill từ lịch sử đơn hàng
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO processed_order_event (consumer, order_id, event, processed_at) " +
+            "SELECT :consumer, o.id, :event, CURRENT_TIMESTAMP FROM orders o WHERE o.order_status IN (:statuses)", nativeQuery = true)
+    int markAllProcessed(@Param("consumer") String consumer, @Param("event") String event,
+                         @Param("statuses") Collection<String> statuses);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM processed_order_event WHERE consumer = :consumer", nativeQuery = true)
+    int deleteByConsumer(@Param("consumer") String consumer);
+}
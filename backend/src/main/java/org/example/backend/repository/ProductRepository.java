@@ -1,51 +1,75 @@
 package org.example.backend.repository;
 
+import org.example.backend.dto.ProductGridRow;
 import org.example.backend.entity.Product;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
-    @Query("SELECT p FROM Product p WHERE (:keyword IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(p.brand.name) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
-            "AND (:category IS NULL OR p.category.name = :category) AND (:brand IS NULL OR p.brand.name = :brand)")
-    Page<Product> findByFilters(@Param("keyword") String keyword, @Param("category") String category, @Param("brand") String brand, Pageable pageable);
-
-    @Query("SELECT p FROM Product p JOIN p.productVariantList pv LEFT JOIN pv.productImageList pi " +
-            "WHERE (:keyword IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(p.brand.name) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
-            "AND (:category IS NULL OR p.category.name = :category) AND (:brand IS NULL OR p.brand.name = :brand) " +
-            "AND (pi.mainImage = true OR pi IS NULL) ORDER BY pv.price ASC")
-    Page<Product> findByFiltersPriceAsc(@Param("keyword") String keyword, @Param("category") String category, @Param("brand") String brand, Pageable pageable);
-
-    @Query("SELECT p FROM Product p JOIN p.productVariantList pv LEFT JOIN pv.productImageList pi " +
-            "WHERE (:keyword IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(p.brand.name) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
-            "AND (:category IS NULL OR p.category.name = :category) AND (:brand IS NULL OR p.brand.name = :brand) " +
-            "AND (pi.mainImage = true OR pi IS NULL) ORDER BY pv.price DESC")
-    Page<Product> findByFiltersPriceDesc(@Param("keyword") String keyword, @Param("category") String category, @Param("brand") String brand, Pageable pageable);
-
-    @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(p.brand.name) LIKE LOWER(CONCAT('%', :keyword, '%'))")
-    Page<Product> findByNameContainingIgnoreCaseOrBrandNameContainingIgnoreCase(@Param("keyword") String keyword, Pageable pageable);
-
-    @Query("SELECT p FROM Product p JOIN p.productVariantList pv LEFT JOIN pv.productImageList pi WHERE pi.mainImage = true OR pi IS NULL ORDER BY pv.price ASC")
-    Page<Product> findAllByPriceAsc(Pageable pageable);
-
-    @Query("SELECT p FROM Product p JOIN p.productVariantList pv LEFT JOIN pv.productImageList pi WHERE pi.mainImage = true OR pi IS NULL ORDER BY pv.price DESC")
-    Page<Product> findAllByPriceDesc(Pageable pageable);
-
-    @Query("SELECT p FROM Product p JOIN p.productVariantList pv LEFT JOIN pv.productImageList pi WHERE (LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(p.brand.name) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND (pi.mainImage = true OR pi IS NULL) ORDER BY pv.price ASC")
-    Page<Product> findByNameOrBrandByPriceAsc(@Param("keyword") String keyword, Pageable pageable);
-
-    @Query("SELECT p FROM Product p JOIN p.productVariantList pv LEFT JOIN pv.productImageList pi WHERE (LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(p.brand.name) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND (pi.mainImage = true OR pi IS NULL) ORDER BY pv.price DESC")
-    Page<Product> findByNameOrBrandByPriceDesc(@Param("keyword") String keyword, Pageable pageable);
-
-    @Query("SELECT p FROM Product p JOIN p.productVariantList pv LEFT JOIN pv.productImageList pi LEFT JOIN OrderDetail od ON pv.id = od.variant.id " +
-            "WHERE pi.mainImage = true OR pi IS NULL " +
-            "GROUP BY p.id, p.name, p.description, p.brand, p.category, p.viewCount " +
-            "ORDER BY COALESCE(SUM(od.quantity), 0) DESC")
-    List<Product> findBestSellers(Pageable pageable);
-}
\ No newline at end of file
+    @Query("SELECT new org.example.backend.dto.ProductGridRow(p.id, p.name, p.description, b.name, c.name, " +
+            "pv.id, pv.price, pv.quantity, pv.productAttribute, pv.variant, i.publicId) " +
+            "FROM Product p LEFT JOIN p.brand b LEFT JOIN p.category c LEFT JOIN p.productVariantList pv " +
+            "LEFT JOIN pv.productImageList pi ON pi.mainImage = true LEFT JOIN pi.image i " +
+            "WHERE p.id IN :ids ORDER BY p.id, pv.id")
+    List<ProductGridRow> findGridRowsByProductIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.brand LEFT JOIN FETCH p.category " +
+            "LEFT JOIN FETCH p.productVariantList WHERE p.id IN :ids")
+    List<Product> findWithVariantsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id FROM Product p ORDER BY p.viewCount DESC, p.id")
+    List<Long> findMostViewedIds(Pageable pageable);
+
+    @Query("SELECT p.id FROM Product p")
+    List<Long> findAllIds();
+
+    // Phân trang keyset: mỗi trang là một lần quét khoảng theo (khóa sắp xếp, id), không cần COUNT(*)
+    @Query("SELECT p FROM Product p WHERE (:id IS NULL OR p.id > :id) ORDER BY p.id ASC")
+    Slice<Product> findIdKeyset(@Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE (:category IS NULL OR p.category.name = :category) AND (:brand IS NULL OR p.brand.name = :brand) " +
+            "AND (:id IS NULL OR p.name > :name OR (p.name = :name AND p.id > :id)) ORDER BY p.name ASC, p.id ASC")
+    Slice<Product> findNameKeysetAsc(@Param("category") String category, @Param("brand") String brand,
+                                     @Param("name") String name, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE (:category IS NULL OR p.category.name = :category) AND (:brand IS NULL OR p.brand.name = :brand) " +
+            "AND (:id IS NULL OR p.name < :name OR (p.name = :name AND p.id < :id)) ORDER BY p.name DESC, p.id DESC")
+    Slice<Product> findNameKeysetDesc(@Param("category") String category, @Param("brand") String brand,
+                                      @Param("name") String name, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE (:category IS NULL OR p.category.name = :category) AND (:brand IS NULL OR p.brand.name = :brand) " +
+            "AND (:id IS NULL OR p.displayPrice > :price OR (p.displayPrice = :price AND p.id > :id)) ORDER BY p.displayPrice ASC, p.id ASC")
+    Slice<Product> findPriceKeysetAsc(@Param("category") String category, @Param("brand") String brand,
+                                      @Param("price") BigDecimal price, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE (:category IS NULL OR p.category.name = :category) AND (:brand IS NULL OR p.brand.name = :brand) " +
+            "AND (:id IS NULL OR p.displayPrice < :price OR (p.displayPrice = :price AND p.id < :id)) ORDER BY p.displayPrice DESC, p.id DESC")
+    Slice<Product> findPriceKeysetDesc(@Param("category") String category, @Param("brand") String brand,
+                                       @Param("price") BigDecimal price, @Param("id") Long id, Pageable pageable);
+
+    // Tính lại display_price của một sản phẩm sau khi biến thể được thêm / xóa / đổi giá
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE product p SET display_price = COALESCE((SELECT MIN(pv.price) FROM productvariant pv WHERE pv.product_id = p.id), 0) " +
+            "WHERE p.id = :productId", nativeQuery = true)
+    int refreshDisplayPrice(@Param("productId") Long productId);
+
+    // Đối chiếu display_price của mọi sản phẩm với giá biến thể, set-based một lần khi khởi động; chỉ ghi các dòng lệch
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE product p SET display_price = COALESCE((SELECT MIN(pv.price) FROM productvariant pv WHERE pv.product_id = p.id), 0) " +
+            "WHERE p.display_price IS NULL " +
+            "OR p.display_price <> COALESCE((SELECT MIN(pv.price) FROM productvariant pv WHERE pv.product_id = p.id), 0)", nativeQuery = true)
+    int backfillDisplayPrices();
+}
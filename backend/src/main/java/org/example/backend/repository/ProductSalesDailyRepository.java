@@ -0,0 +1,39 @@
+package org.example.backend.repository;
+
+import org.example.backend.entity.ProductSalesDaily;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ProductSalesDailyRepository extends JpaRepository<ProductSalesDaily, Long> {
+    @Modifying
+    @Query(value = "INSERT INTO product_sales_daily (product_id, category_id, sales_date, units_sold) " +
+            "VALUES (:productId, :categoryId, :salesDate, :units) " +
+            "ON DUPLICATE KEY UPDATE units_sold = units_sold + :units", nativeQuery = true)
+    void addUnits(@Param("productId") Long productId, @Param("categoryId") Long categoryId,
+                  @Param("salesDate") LocalDate salesDate, @Param("units") long units);
+
+    @Query("SELECT d.productId FROM ProductSalesDaily d " +
+            "WHERE d.salesDate >= :from AND (:categoryId IS NULL OR d.categoryId = :categoryId) " +
+            "GROUP BY d.productId HAVING SUM(d.unitsSold) > 0 " +
+            "ORDER BY SUM(d.unitsSold) DESC, d.productId ASC")
+    List<Long> findTopProductIdsSince(@Param("from") LocalDate from, @Param("categoryId") Long categoryId, Pageable pageable);
+
+    // booking_date được ghi theo app.zone-id nên CAST(... AS DATE) cho cùng ngày với SalesRankService
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO product_sales_daily (product_id, category_id, sales_date, units_sold) " +
+            "SELECT p.id, p.category_id, CAST(o.booking_date AS DATE), SUM(od.quantity) FROM orderdetails od " +
+            "JOIN orders o ON o.id = od.order_id " +
+            "JOIN productvariant pv ON pv.id = od.product_variant_id " +
+            "JOIN product p ON p.id = pv.product_id " +
+            "WHERE o.order_status NOT IN ('CANCELLED', 'REFUSED') AND o.booking_date IS NOT NULL " +
+            "GROUP BY p.id, p.category_id, CAST(o.booking_date AS DATE)", nativeQuery = true)
+    int backfill();
+}
@@ -0,0 +1,27 @@
+package org.example.backend.repository;
+
+import org.example.backend.entity.ProductSales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ProductSalesRepository extends JpaRepository<ProductSales, Long> {
+    @Modifying
+    @Query(value = "INSERT INTO product_sales (product_id, category_id, units_sold) VALUES (:productId, :categoryId, :units) " +
+            "ON DUPLICATE KEY UPDATE units_sold = units_sold + :units", nativeQuery = true)
+    void addUnits(@Param("productId") Long productId, @Param("categoryId") Long categoryId, @Param("units") long units);
+
+    // Dựng lại toàn bộ bảng từ lịch sử đơn hàng bằng một câu lệnh set-based
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO product_sales (product_id, category_id, units_sold) " +
+            "SELECT p.id, p.category_id, SUM(od.quantity) FROM orderdetails od " +
+            "JOIN orders o ON o.id = od.order_id " +
+            "JOIN productvariant pv ON pv.id = od.product_variant_id " +
+            "JOIN product p ON p.id = pv.product_id " +
+            "WHERE o.order_status NOT IN ('CANCELLED', 'REFUSED') " +
+            "GROUP BY p.id, p.category_id", nativeQuery = true)
+    int backfill();
+}
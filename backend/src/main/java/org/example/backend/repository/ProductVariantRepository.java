@@ -2,6 +2,14 @@ package org.example.backend.repository;
 
 import org.example.backend.entity.ProductVariant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long> {
-}
\ No newline at end of file
+    @Query("SELECT DISTINCT pv FROM ProductVariant pv LEFT JOIN FETCH pv.productImageList pi LEFT JOIN FETCH pi.image " +
+            "WHERE pv.product.id IN :productIds")
+    List<ProductVariant> findWithImagesByProductIdIn(@Param("productIds") Collection<Long> productIds);
+}
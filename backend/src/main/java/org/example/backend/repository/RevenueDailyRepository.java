@@ -0,0 +1,40 @@
+package org.example.backend.repository;
+
+import org.example.backend.entity.RevenueDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface RevenueDailyRepository extends JpaRepository<RevenueDaily, LocalDate> {
+    @Modifying
+    @Query(value = "INSERT INTO revenue_daily (sales_date, revenue, orders_count) VALUES (:salesDate, :revenue, :orders) " +
+            "ON DUPLICATE KEY UPDATE revenue = revenue + :revenue, orders_count = orders_count + :orders", nativeQuery = true)
+    void add(@Param("salesDate") LocalDate salesDate, @Param("revenue") BigDecimal revenue, @Param("orders") long orders);
+
+    @Query("SELECT r FROM RevenueDaily r WHERE r.salesDate BETWEEN :from AND :to ORDER BY r.salesDate")
+    List<RevenueDaily> findRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT COALESCE(SUM(r.revenue), 0) FROM RevenueDaily r WHERE r.salesDate BETWEEN :from AND :to")
+    BigDecimal sumRevenue(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT COALESCE(SUM(r.revenue), 0) FROM RevenueDaily r")
+    BigDecimal sumAllRevenue();
+
+    // Dựng lại toàn bộ bảng từ lịch sử đơn đã giao bằng một câu lệnh set-based;
+    // DATETIME được ghi theo app.zone-id nên CAST(... AS DATE) cho cùng ngày với phần cộng dồn
+    @Modifying
+    @Query(value = "INSERT INTO revenue_daily (sales_date, revenue, orders_count) " +
+            "SELECT CAST(COALESCE(o.delivery_date, o.booking_date) AS DATE), SUM(COALESCE(o.total_money, 0)), COUNT(*) " +
+            "FROM orders o WHERE o.order_status = 'DELIVERED' AND COALESCE(o.delivery_date, o.booking_date) IS NOT NULL " +
+            "GROUP BY CAST(COALESCE(o.delivery_date, o.booking_date) AS DATE)", nativeQuery = true)
+    int backfill();
+
+    @Modifying
+    @Query(value = "DELETE FROM revenue_daily", nativeQuery = true)
+    void deleteAllRows();
+}
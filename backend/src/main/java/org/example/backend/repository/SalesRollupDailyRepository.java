@@ -0,0 +1,44 @@
+package org.example.backend.repository;
+
+import org.example.backend.dto.CategorySalesRow;
+import org.example.backend.entity.SalesRollupDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SalesRollupDailyRepository extends JpaRepository<SalesRollupDaily, Long> {
+    @Modifying
+    @Query(value = "INSERT INTO sales_rollup_daily (sales_date, category_id, revenue, units_sold) " +
+            "VALUES (:salesDate, :categoryId, :revenue, :units) " +
+            "ON DUPLICATE KEY UPDATE revenue = revenue + :revenue, units_sold = units_sold + :units", nativeQuery = true)
+    void add(@Param("salesDate") LocalDate salesDate, @Param("categoryId") Long categoryId,
+             @Param("revenue") BigDecimal revenue, @Param("units") long units);
+
+    @Query("SELECT new org.example.backend.dto.CategorySalesRow(c.id, c.name, SUM(r.revenue), SUM(r.unitsSold)) " +
+            "FROM SalesRollupDaily r, Category c WHERE c.id = r.categoryId " +
+            "GROUP BY c.id, c.name")
+    List<CategorySalesRow> sumByCategory();
+
+    // Dựng lại toàn bộ bảng từ lịch sử đơn đã giao bằng một câu lệnh set-based;
+    // DATETIME được ghi theo app.zone-id nên CAST(... AS DATE) cho cùng ngày với phần cộng dồn
+    @Modifying
+    @Query(value = "INSERT INTO sales_rollup_daily (sales_date, category_id, revenue, units_sold) " +
+            "SELECT CAST(COALESCE(o.delivery_date, o.booking_date) AS DATE), p.category_id, " +
+            "SUM(od.price_with_quantity), SUM(od.quantity) FROM orderdetails od " +
+            "JOIN orders o ON o.id = od.order_id " +
+            "JOIN productvariant pv ON pv.id = od.product_variant_id " +
+            "JOIN product p ON p.id = pv.product_id " +
+            "WHERE o.order_status = 'DELIVERED' AND p.category_id IS NOT NULL " +
+            "AND COALESCE(o.delivery_date, o.booking_date) IS NOT NULL " +
+            "GROUP BY CAST(COALESCE(o.delivery_date, o.booking_date) AS DATE), p.category_id", nativeQuery = true)
+    int backfill();
+
+    @Modifying
+    @Query(value = "DELETE FROM sales_rollup_daily", nativeQuery = true)
+    void deleteAllRows();
+}
@@ -0,0 +1,22 @@
+package org.example.backend.repository;
+
+import org.example.backend.entity.StockReservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+    // Phân trang theo orderId > afterOrderId để đơn lỗi (vẫn còn bản giữ hàng) không bị quét lại trong cùng một lượt
+    @Query("SELECT DISTINCT r.orderId FROM StockReservation r WHERE r.expiresAt < :now AND r.orderId > :afterOrderId ORDER BY r.orderId")
+    List<Long> findExpiredOrderIds(Instant now, Long afterOrderId, Pageable pageable);
+
+    List<StockReservation> findByOrderId(Long orderId);
+
+    @Modifying
+    @Query("DELETE FROM StockReservation r WHERE r.orderId = :orderId")
+    int deleteByOrderId(Long orderId);
+}
@@ -0,0 +1,18 @@
+package org.example.backend.repository;
+
+import org.example.backend.entity.VNPayNotification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+public interface VNPayNotificationRepository extends JpaRepository<VNPayNotification, Long> {
+    // Trả về 0 nếu vnp_TxnRef đã được ghi nhận (khóa duy nhất); IPN đồng thời chờ transaction đầu commit rồi nhận 0
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO vnpay_notification (vnp_txn_ref, order_id, response_code, transaction_no, received_at) " +
+            "VALUES (:txnRef, :orderId, :responseCode, :transactionNo, :receivedAt)", nativeQuery = true)
+    int insertIfAbsent(@Param("txnRef") Long txnRef, @Param("orderId") Long orderId, @Param("responseCode") String responseCode,
+                       @Param("transactionNo") String transactionNo, @Param("receivedAt") Instant receivedAt);
+}
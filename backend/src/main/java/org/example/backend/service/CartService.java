@@ -1,18 +1,26 @@
 package org.example.backend.service;
 
 import org.example.backend.dto.CartItemDTO;
+import org.example.backend.dto.CartItemRow;
 import org.example.backend.entity.Cart;
 import org.example.backend.entity.CartItem;
-import org.example.backend.entity.ProductVariant;
 import org.example.backend.repository.CartItemRepository;
 import org.example.backend.repository.CartRepository;
 import org.example.backend.repository.ProductVariantRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,6 +34,9 @@ public class CartService {
     @Autowired
     private ProductVariantRepository productVariantRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Transactional
     public List<CartItem> getCartItemsByUserId(Long userId) {
         Cart cart = cartRepository.findByUserId(userId)
@@ -40,6 +51,10 @@ public class CartService {
         return items;
     }
 
+    /**
+     * Thêm sản phẩm vào giỏ bằng một lệnh upsert (cộng dồn nếu variant đã có trong giỏ),
+     * không cần load toàn bộ giỏ hàng và an toàn khi nhiều yêu cầu thêm cùng lúc.
+     */
     @Transactional
     public CartItem addCartItem(Long userId, Long productVariantId, Integer quantity) {
         Cart cart = cartRepository.findByUserId(userId)
@@ -49,53 +64,71 @@ public class CartService {
                     return cartRepository.save(newCart);
                 });
 
-        ProductVariant productVariant = productVariantRepository.findById(productVariantId)
-                .orElseThrow(() -> new IllegalArgumentException("Product variant not found"));
-
-        Optional<CartItem> existingItem = cart.getCartItems().stream()
-                .filter(item -> item.getProductVariant().getId().equals(productVariantId))
-                .findFirst();
-
-        CartItem cartItem;
-        if (existingItem.isPresent()) {
-            cartItem = existingItem.get();
-            cartItem.setQuantity(cartItem.getQuantity() + quantity);
-        } else {
-            cartItem = new CartItem();
-            cartItem.setCart(cart);
-            cartItem.setProductVariant(productVariant);
-            cartItem.setQuantity(quantity);
-            cart.getCartItems().add(cartItem);
+        try {
+            cartItemRepository.upsertQuantity(cart.getId(), productVariantId, quantity);
+        } catch (DataIntegrityViolationException e) {
+            // Vi phạm khóa ngoại product_variant_id
+            throw new IllegalArgumentException("Product variant not found");
         }
-        return cartItemRepository.save(cartItem);
+        return cartItemRepository.findByCartIdAndProductVariantIdWithImages(cart.getId(), productVariantId)
+                .orElseThrow(() -> new IllegalArgumentException("Product variant not found"));
     }
 
+    /**
+     * Đồng bộ giỏ hàng theo danh sách từ client bằng cách so sánh với các dòng hiện có:
+     * chỉ chèn dòng mới, sửa dòng đổi số lượng và xóa dòng bị bỏ, mỗi loại là một lô JDBC.
+     * Variant trùng nhau trong danh sách được gộp, lấy số lượng cuối cùng.
+     */
     @Transactional
     public List<CartItem> updateCart(Long userId, List<CartItemDTO> cartItemDTOs) {
         Cart cart = cartRepository.findByUserId(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Cart not found"));
 
-        // Clear existing items without replacing the collection
-        cartItemRepository.deleteByCartId(cart.getId());
-        cart.getCartItems().clear();
-
-        // Add new items
-        List<CartItem> updatedItems = cartItemDTOs.stream()
-                .map(dto -> {
-                    ProductVariant productVariant = productVariantRepository.findById(dto.getProductVariantId())
-                            .orElseThrow(() -> new IllegalArgumentException("Product variant not found"));
-
-                    CartItem cartItem = new CartItem();
-                    cartItem.setCart(cart);
-                    cartItem.setProductVariant(productVariant);
-                    cartItem.setQuantity(dto.getQuantity());
-                    cart.getCartItems().add(cartItem);
-                    return cartItem;
-                })
-                .collect(Collectors.toList());
+        Map<Long, Integer> desired = new LinkedHashMap<>();
+        for (CartItemDTO dto : cartItemDTOs) {
+            desired.put(dto.getProductVariantId(), dto.getQuantity());
+        }
+        if (desired.containsKey(null)
+                || productVariantRepository.findAllById(desired.keySet()).size() != desired.size()) {
+            throw new IllegalArgumentException("Product variant not found");
+        }
 
-        cartRepository.save(cart);
-        return cartItemRepository.saveAll(updatedItems);
+        Map<Long, CartItemRow> existing = new HashMap<>();
+        Set<Long> deletes = new HashSet<>();
+        for (CartItemRow row : cartItemRepository.findRowsByCartId(cart.getId())) {
+            // Dòng trùng variant (dữ liệu cũ) bị xóa, chỉ giữ một dòng
+            if (existing.putIfAbsent(row.getProductVariantId(), row) != null) {
+                deletes.add(row.getId());
+            }
+        }
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : desired.entrySet()) {
+            CartItemRow row = existing.remove(entry.getKey());
+            if (row == null) {
+                inserts.add(new Object[]{cart.getId(), entry.getKey(), entry.getValue()});
+            } else if (!row.getQuantity().equals(entry.getValue())) {
+                updates.add(new Object[]{entry.getValue(), row.getId()});
+            }
+        }
+        existing.values().forEach(row -> deletes.add(row.getId()));
+
+        if (!deletes.isEmpty()) {
+            cartItemRepository.deleteAllByIdIn(deletes);
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE cartitem SET quantity = ? WHERE id = ?", updates);
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO cartitem (cart_id, product_variant_id, quantity) VALUES (?, ?, ?)", inserts);
+        }
+
+        Map<Long, CartItem> itemsByVariant = cartItemRepository.findByCartIdWithImages(cart.getId()).stream()
+                .collect(Collectors.toMap(item -> item.getProductVariant().getId(), item -> item, (first, second) -> first));
+        return desired.keySet().stream()
+                .map(itemsByVariant::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     @Transactional
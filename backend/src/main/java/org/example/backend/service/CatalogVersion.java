@@ -0,0 +1,82 @@
+package org.example.backend.service;
+
+import org.example.backend.event.OrderPlacedEvent;
+import org.example.backend.event.OrderStatusChangedEvent;
+import org.example.backend.event.ProductChangedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Vector phiên bản của danh mục sản phẩm dùng để sinh ETag: phiên bản toàn danh mục, phiên bản
+ * theo từng sản phẩm, phiên bản số liệu bán hàng (trang bán chạy) và lượt xem (trang xem nhiều nhất). Các listener ở đây chạy
+ * sau cùng (LOWEST_PRECEDENCE) để chỉ tăng phiên bản khi chỉ mục / bộ nhớ đệm (@Order(0)) đã làm mới xong.
+ */
+@Service
+public class CatalogVersion {
+    // Phân biệt các lần khởi động để ETag cũ không trùng với bộ đếm bắt đầu lại từ 0
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong products = new AtomicLong();
+    private final AtomicLong sales = new AtomicLong();
+    private final AtomicLong views = new AtomicLong();
+    private final Map<Long, Long> productVersions = new ConcurrentHashMap<>();
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        productVersions.merge(event.getProductId(), 1L, Long::sum);
+        products.incrementAndGet();
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        sales.incrementAndGet();
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        sales.incrementAndGet();
+    }
+
+    /**
+     * Gọi sau mỗi lần ProductViewCounter ghi lượt xem xuống DB.
+     */
+    public void onViewsFlushed() {
+        views.incrementAndGet();
+    }
+
+    /**
+     * ETag cho các trang danh sách (grid, search, sorted, filter, batch).
+     */
+    public String catalogETag() {
+        return "\"" + epoch + "-" + products.get() + "\"";
+    }
+
+    /**
+     * ETag cho trang bán chạy: phụ thuộc cả dữ liệu sản phẩm lẫn số liệu bán hàng.
+     */
+    public String bestSellersETag() {
+        return "\"" + epoch + "-" + products.get() + "-" + sales.get() + "\"";
+    }
+
+    /**
+     * ETag cho trang xem nhiều nhất: phụ thuộc dữ liệu sản phẩm và lượt xem đã ghi.
+     */
+    public String mostViewedETag() {
+        return "\"" + epoch + "-" + products.get() + "-v" + views.get() + "\"";
+    }
+
+    /**
+     * ETag cho chi tiết một sản phẩm: chỉ đổi khi chính sản phẩm đó thay đổi.
+     */
+    public String productETag(Long productId) {
+        return "\"" + epoch + "-p" + productId + "-" + productVersions.getOrDefault(productId, 0L) + "\"";
+    }
+}
@@ -87,6 +87,13 @@ public class EmailService {
 
     @Async("emailExecutor")
     public void sendOrderConfirmationEmail(Order order) throws MessagingException {
+        deliverOrderConfirmationEmail(order);
+    }
+
+    /**
+     * Gửi email xác nhận đơn hàng ngay trên luồng hiện tại, lỗi được ném ra để nơi gọi có thể thử lại.
+     */
+    public void deliverOrderConfirmationEmail(Order order) throws MessagingException {
         try {
             if (order.getUser() == null || order.getUser().getEmail() == null) {
                 logger.error("Cannot send email for order #{}: User or email is null", order.getId());
@@ -0,0 +1,244 @@
+package org.example.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.example.backend.entity.IdempotencyRecord;
+import org.example.backend.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Thực thi một yêu cầu đúng một lần cho mỗi header Idempotency-Key. Phản hồi được giữ trong bộ nhớ
+ * (Caffeine, có giới hạn) và trong bảng idempotency_record; yêu cầu lặp lại nhận lại phản hồi đã lưu,
+ * yêu cầu trùng đến đồng thời chờ lần thực thi đầu tiên thay vì tạo đơn / trừ kho lần nữa.
+ * <p>
+ * Action chạy trong một transaction và bản ghi hoàn tất được ghi trong chính transaction đó, nên đơn hàng
+ * và phản hồi đã lưu cùng commit hoặc cùng rollback. Bản ghi đang xử lý giữ một lease (idempotency.wait-timeout);
+ * nếu instance giữ key dừng giữa chừng, yêu cầu lặp lại sau khi lease hết hạn được nhận lại key.
+ */
+@Service
+public class IdempotencyService {
+    public static final String HEADER = "Idempotency-Key";
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, CompletableFuture<StoredResponse>> responses;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${idempotency.max-entries:10000}") long maxEntries,
+                              @Value("${idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${idempotency.wait-timeout:PT30S}") Duration waitTimeout) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    private record StoredResponse(String requestHash, int status, String body) {
+    }
+
+    private record Outcome(ResponseEntity<?> response, String body, boolean stored) {
+    }
+
+    /**
+     * Chạy action nếu key chưa được dùng, ngược lại trả về phản hồi đã lưu. Không có key thì chạy action như bình thường.
+     * Chỉ phản hồi 2xx/4xx được lưu; lỗi 5xx hoặc exception cho phép client thử lại với cùng key.
+     */
+    public ResponseEntity<?> execute(String scope, Long userId, String key, Object requestBody,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return error(HttpStatus.BAD_REQUEST, HEADER + " không được dài quá " + MAX_KEY_LENGTH + " ký tự");
+        }
+        String idemKey = scope + ":" + userId + ":" + key;
+        String requestHash = hash(requestBody);
+        while (true) {
+            CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> existing = responses.asMap().putIfAbsent(idemKey, mine);
+            if (existing != null) {
+                try {
+                    return replay(existing.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS), requestHash);
+                } catch (ExecutionException e) {
+                    // Lần thực thi đầu lỗi và đã nhả key: thử giành key lại
+                    continue;
+                } catch (TimeoutException e) {
+                    return error(HttpStatus.CONFLICT, "Yêu cầu với " + HEADER + " này đang được xử lý");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return error(HttpStatus.CONFLICT, "Yêu cầu với " + HEADER + " này đang được xử lý");
+                }
+            }
+            return executeFirst(idemKey, requestHash, mine, action);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        int deleted = idempotencyRecordRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            logger.info("Đã xóa {} bản ghi Idempotency-Key hết hạn", deleted);
+        }
+    }
+
+    private ResponseEntity<?> executeFirst(String idemKey, String requestHash, CompletableFuture<StoredResponse> mine,
+                                           Supplier<ResponseEntity<?>> action) {
+        // Làm tròn tới mili giây để so sánh lease sau khi đi qua cột DATETIME(6)
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Instant lease = now.plus(waitTimeout);
+        Long recordId;
+        try {
+            Optional<IdempotencyRecord> persisted = idempotencyRecordRepository.findByIdemKey(idemKey);
+            if (persisted.isPresent() && persisted.get().getExpiresAt().isAfter(now)) {
+                IdempotencyRecord found = persisted.get();
+                if (found.isCompleted()) {
+                    StoredResponse stored = new StoredResponse(found.getRequestHash(), found.getResponseStatus(), found.getResponseBody());
+                    mine.complete(stored);
+                    return replay(stored, requestHash);
+                }
+                if (idempotencyRecordRepository.takeOver(found.getId(), requestHash, now, lease, now.plus(ttl)) == 0) {
+                    // Instance khác đang xử lý cùng key và lease còn hạn
+                    release(idemKey, mine, null);
+                    return error(HttpStatus.CONFLICT, "Yêu cầu với " + HEADER + " này đang được xử lý");
+                }
+                logger.warn("Nhận lại {} {} có lease đã hết hạn", HEADER, idemKey);
+                recordId = found.getId();
+            } else {
+                persisted.ifPresent(idempotencyRecordRepository::delete);
+                IdempotencyRecord record = new IdempotencyRecord();
+                record.setIdemKey(idemKey);
+                record.setRequestHash(requestHash);
+                record.setCompleted(false);
+                record.setInProgressUntil(lease);
+                record.setCreatedAt(now);
+                record.setExpiresAt(now.plus(ttl));
+                recordId = idempotencyRecordRepository.saveAndFlush(record).getId();
+            }
+        } catch (DataIntegrityViolationException e) {
+            release(idemKey, mine, null);
+            return error(HttpStatus.CONFLICT, "Yêu cầu với " + HEADER + " này đang được xử lý");
+        } catch (RuntimeException e) {
+            release(idemKey, mine, e);
+            throw e;
+        }
+
+        Outcome outcome;
+        try {
+            outcome = transactionTemplate.execute(status -> {
+                ResponseEntity<?> response = action.get();
+                String body = toJson(response.getBody());
+                if (response.getStatusCode().is5xxServerError() || status.isRollbackOnly()) {
+                    // Action đã lỗi bên trong: không commit gì của action, phản hồi 4xx được lưu sau khi rollback
+                    status.setRollbackOnly();
+                    return new Outcome(response, body, false);
+                }
+                complete(recordId, lease, response.getStatusCode().value(), body);
+                return new Outcome(response, body, true);
+            });
+        } catch (RuntimeException e) {
+            idempotencyRecordRepository.deleteInProgress(recordId, lease);
+            release(idemKey, mine, e);
+            throw e;
+        }
+        ResponseEntity<?> response = outcome.response();
+        // 2xx nhưng transaction đã rollback thì kết quả không tồn tại, không được lưu lại như thành công
+        if (response.getStatusCode().is5xxServerError() || (!outcome.stored() && response.getStatusCode().is2xxSuccessful())) {
+            idempotencyRecordRepository.deleteInProgress(recordId, lease);
+            release(idemKey, mine, new IllegalStateException("Lỗi máy chủ, cho phép thử lại"));
+            return response;
+        }
+        if (!outcome.stored()) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        complete(recordId, lease, response.getStatusCode().value(), outcome.body()));
+            } catch (RuntimeException e) {
+                release(idemKey, mine, e);
+                throw e;
+            }
+        }
+        mine.complete(new StoredResponse(requestHash, response.getStatusCode().value(), outcome.body()));
+        return response;
+    }
+
+    private void complete(Long recordId, Instant lease, int status, String body) {
+        if (idempotencyRecordRepository.complete(recordId, lease, status, body) == 0) {
+            // Lease đã hết hạn và key đã bị instance khác nhận lại: rollback để không tạo kết quả thứ hai
+            throw new IllegalStateException(HEADER + " đã được nhận lại bởi yêu cầu khác");
+        }
+    }
+
+    private void release(String idemKey, CompletableFuture<StoredResponse> mine, RuntimeException cause) {
+        responses.asMap().remove(idemKey, mine);
+        mine.completeExceptionally(cause != null ? cause : new IllegalStateException("Key đang được xử lý ở nơi khác"));
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            return error(HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " đã được dùng cho một yêu cầu khác");
+        }
+        return ResponseEntity.status(stored.status())
+                .header("Idempotent-Replayed", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(stored.body());
+    }
+
+    private String hash(Object requestBody) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(toJson(requestBody).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không thể serialize dữ liệu yêu cầu / phản hồi", e);
+        }
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(Map.of("success", false, "message", message));
+    }
+}
@@ -1,26 +1,45 @@
 package org.example.backend.service;
 
-import jakarta.mail.MessagingException;
 import lombok.RequiredArgsConstructor;
+import org.example.backend.dto.BulkStatusUpdateResult;
 import org.example.backend.dto.OrderDTO;
 import org.example.backend.dto.OrderDetailDTO;
 import org.example.backend.dto.OrderDetailResponseDTO;
+import org.example.backend.dto.OrderStatusRow;
+import org.example.backend.dto.ProductUnitsRow;
 import org.example.backend.entity.*;
 import org.example.backend.enums.OrderStatus;
+import org.example.backend.enums.OutboxEventType;
+import org.example.backend.enums.PaymentConfirmation;
+import org.example.backend.event.OrderStatusChangedEvent;
+import org.example.backend.event.ProductChangedEvent;
 import org.example.backend.repository.*;
+import org.example.backend.util.KeysetCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,14 +48,20 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final OrderDetailRepository orderDetailRepository;
     private final PaymentRepository paymentRepository;
-    private final ProductVariantRepository productVariantRepository;
     private final UserRepository userRepository;
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final EVoucherRepository eVoucherRepository;
-    private final EmailService emailService;
+    private final StockService stockService;
+    private final StockReservationRepository stockReservationRepository;
+    private final OutboxService outboxService;
+    private final ApplicationEventPublisher eventPublisher;
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
 
+    // Cho phép VNPay trả kết quả trễ một chút sau vnp_ExpireDate trước khi trả hàng về kho
+    @Value("${order.reservation.grace:PT2M}")
+    private Duration reservationGrace;
+
     @Transactional
     public Order createOrder(Long userId, OrderDTO orderDTO) {
         // Validate user
@@ -75,6 +100,7 @@ public class OrderService {
         BigDecimal totalMoney = BigDecimal.ZERO;
         List<OrderDetail> orderDetails = new ArrayList<>();
         List<Long> cartItemIdsToDelete = new ArrayList<>();
+        Map<Long, Integer> stockQuantities = new HashMap<>();
         List<Long> paidProductVariantIds = orderDTO.getOrderDetails().stream()
                 .map(OrderDetailDTO::getProductVariantId)
                 .collect(Collectors.toList());
@@ -91,11 +117,6 @@ public class OrderService {
                         .findFirst()
                         .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy thông tin sản phẩm trong đơn hàng cho variant: " + variant.getId()));
 
-                // Check stock
-                if (variant.getQuantity() < orderDetailDTO.getQuantity()) {
-                    throw new IllegalStateException("Insufficient stock for product variant: " + variant.getId());
-                }
-
                 // Create order detail
                 OrderDetail detail = new OrderDetail();
                 detail.setOrder(order);
@@ -107,10 +128,7 @@ public class OrderService {
                 orderDetails.add(detail);
                 totalMoney = totalMoney.add(detail.getPriceWithQuantity());
                 cartItemIdsToDelete.add(cartItem.getId());
-
-                // Update product variant quantity
-                variant.setQuantity(variant.getQuantity() - orderDetailDTO.getQuantity());
-                productVariantRepository.save(variant);
+                stockQuantities.merge(variant.getId(), orderDetailDTO.getQuantity(), Integer::sum);
             }
         }
 
@@ -118,6 +136,9 @@ public class OrderService {
             throw new IllegalArgumentException("Không có sản phẩm hợp lệ nào trong đơn hàng");
         }
 
+        // Trừ tồn kho có điều kiện cho mọi dòng trong một lô; thiếu hàng thì rollback cả đơn
+        stockService.decrement(stockQuantities);
+
         // Handle voucher usage if applied
         if (orderDTO.getDiscountValue().compareTo(BigDecimal.ZERO) > 0 && orderDTO.getVoucherId() != null) {
             EVoucher eVoucher = eVoucherRepository.findByUserAndVoucher_Id(user, orderDTO.getVoucherId())
@@ -145,29 +166,215 @@ public class OrderService {
             cartRepository.save(cart);
         }
 
-        // Send email for COD orders
+        // Tác vụ phụ (email, thống kê, làm mới cache / chỉ mục) ghi vào outbox, chạy sau khi commit
         if (payment.getId() != null && (payment.getId() == 1 || payment.getId() == 2) ) {
-            logger.info("Sending COD confirmation email for order #{}", savedOrder.getId());
-            List<OrderDetail> details = orderDetailRepository.findByOrderId(savedOrder.getId());
-            order.setOrderDetails(details);
-            Order orderWithDetails = orderRepository.findByIdWithDetails(savedOrder.getId())
-                    .orElseThrow(() -> new IllegalArgumentException("Order not found: " + savedOrder.getId()));
+            outboxService.enqueue(OutboxEventType.ORDER_CONFIRMATION_EMAIL, savedOrder.getId());
+        }
+        outboxService.enqueueAll(OutboxEventType.PRODUCT_CHANGED, orderDetails.stream()
+                .map(detail -> detail.getVariant().getProduct().getId())
+                .distinct()
+                .collect(Collectors.toList()));
+        outboxService.enqueue(OutboxEventType.ORDER_PLACED, savedOrder.getId());
+        return savedOrder;
+    }
 
-            logger.info("Order #{} has {} order details", orderWithDetails.getId(), orderWithDetails.getOrderDetails().size());
+    /**
+     * Tạo đơn thanh toán qua VNPay: đơn ở trạng thái PENDING, tồn kho đã trừ được ghi thành các bản giữ hàng
+     * hết hạn tại expiresAt (thời điểm vnp_ExpireDate). Quá hạn mà chưa thanh toán thì ReservationSweeper trả hàng về kho.
+     */
+    @Transactional
+    public Order createVNPayOrder(Long userId, OrderDTO orderDTO, Long vnpTxnRef, Instant expiresAt) {
+        Order order = createOrder(userId, orderDTO);
+        order.setVnpTxnRef(vnpTxnRef);
+        orderRepository.save(order);
+
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderDetail detail : orderDetailRepository.findByOrderId(order.getId())) {
+            quantities.merge(detail.getVariant().getId(), detail.getQuantity(), Integer::sum);
+        }
+        List<StockReservation> reservations = new ArrayList<>();
+        quantities.forEach((variantId, quantity) -> {
+            StockReservation reservation = new StockReservation();
+            reservation.setOrderId(order.getId());
+            reservation.setProductVariantId(variantId);
+            reservation.setQuantity(quantity);
+            reservation.setExpiresAt(expiresAt.plus(reservationGrace));
+            reservations.add(reservation);
+        });
+        stockReservationRepository.saveAll(reservations);
+        return order;
+    }
+
+    /**
+     * Thanh toán online thành công: chuyển đơn PENDING sang CONFIRMED và bỏ các bản giữ hàng
+     * (tồn kho đã trừ trở thành trừ hẳn). Nếu ReservationSweeper đã hủy đơn vì quá hạn và trả hàng về kho,
+     * thử trừ lại tồn kho để khôi phục đơn; không đủ hàng hoặc đơn ở trạng thái khác thì đánh dấu cần hoàn tiền.
+     */
+    @Transactional
+    public PaymentConfirmation confirmOnlinePayment(Long orderId) {
+        if (orderRepository.compareAndSetStatus(orderId, OrderStatus.PENDING, OrderStatus.CONFIRMED) == 1) {
+            stockReservationRepository.deleteByOrderId(orderId);
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, OrderStatus.PENDING, OrderStatus.CONFIRMED));
+            return PaymentConfirmation.CONFIRMED;
+        }
+        OrderStatus current = orderRepository.findStatusById(orderId)
+                .orElseThrow(() -> new IllegalArgumentException("Order not found: " + orderId));
+        if (current != OrderStatus.CANCELLED && current != OrderStatus.REFUSED && current != OrderStatus.RQ_CANCELED) {
+            logger.warn("Đơn hàng #{} đã ở trạng thái {}, bỏ qua xác nhận thanh toán", orderId, current);
+            return PaymentConfirmation.ALREADY_CONFIRMED;
+        }
+        if (current == OrderStatus.CANCELLED && reviveCancelledOrder(orderId)) {
+            logger.info("Đã khôi phục đơn hàng #{} bị hủy do quá hạn sau khi nhận thanh toán", orderId);
+            return PaymentConfirmation.REVIVED;
+        }
+        orderRepository.markRefundRequired(orderId);
+        logger.error("Đơn hàng #{} ở trạng thái {} nhưng đã được thanh toán online, cần hoàn tiền", orderId, current);
+        return PaymentConfirmation.REFUND_REQUIRED;
+    }
+
+    private boolean reviveCancelledOrder(Long orderId) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderDetail detail : orderDetailRepository.findByOrderId(orderId)) {
+            quantities.merge(detail.getVariant().getId(), detail.getQuantity(), Integer::sum);
+        }
+        if (!stockService.tryDecrement(quantities)) {
+            return false;
+        }
+        if (orderRepository.compareAndSetStatus(orderId, OrderStatus.CANCELLED, OrderStatus.CONFIRMED) == 0) {
+            stockService.increment(quantities);
+            return false;
+        }
+        orderDetailRepository.findProductUnitsByOrderId(orderId).stream()
+                .map(ProductUnitsRow::getProductId)
+                .distinct()
+                .forEach(productId -> eventPublisher.publishEvent(new ProductChangedEvent(productId)));
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, OrderStatus.CANCELLED, OrderStatus.CONFIRMED));
+        return true;
+    }
+
+    /**
+     * Hủy đơn online quá hạn thanh toán và trả số lượng đang giữ về kho. Nếu đơn đã được xác nhận
+     * hoặc xử lý trước đó thì chỉ xóa các bản giữ hàng.
+     */
+    @Transactional
+    public boolean expirePendingOrder(Long orderId) {
+        List<StockReservation> reservations = stockReservationRepository.findByOrderId(orderId);
+        stockReservationRepository.deleteByOrderId(orderId);
+        if (orderRepository.compareAndSetStatus(orderId, OrderStatus.PENDING, OrderStatus.CANCELLED) == 0) {
+            return false;
+        }
+        Map<Long, Integer> quantities = new HashMap<>();
+        reservations.forEach(reservation ->
+                quantities.merge(reservation.getProductVariantId(), reservation.getQuantity(), Integer::sum));
+        stockService.increment(quantities);
+
+        orderDetailRepository.findProductUnitsByOrderId(orderId).stream()
+                .map(ProductUnitsRow::getProductId)
+                .distinct()
+                .forEach(productId -> eventPublisher.publishEvent(new ProductChangedEvent(productId)));
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, OrderStatus.PENDING, OrderStatus.CANCELLED));
+        return true;
+    }
+
+    /**
+     * Chuyển trạng thái một đơn bằng câu UPDATE có điều kiện trên trạng thái vừa đọc; nếu giao dịch khác
+     * (admin khác, IPN, sweeper) đã đổi trạng thái trước thì không ghi đè và không phát sự kiện.
+     */
+    @Transactional
+    public void updateOrderStatus(Long orderId, OrderStatus next) {
+        OrderStatus current = orderRepository.findStatusById(orderId)
+                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy đơn hàng"));
+        current.requireTransitionTo(next);
+
+        // Nếu chuyển sang DELIVERED thì cập nhật ngày giao hàng
+        int updated = next == OrderStatus.DELIVERED
+                ? orderRepository.compareAndSetStatus(orderId, current, next, Instant.now())
+                : orderRepository.compareAndSetStatus(orderId, current, next);
+        if (updated == 0) {
+            throw new IllegalStateException("Trạng thái đơn hàng vừa bị thay đổi, vui lòng thử lại");
+        }
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, current, next));
+    }
+
+    /**
+     * Chuyển trạng thái cho nhiều đơn trong một transaction: kiểm tra theo bảng chuyển trạng thái rồi cập nhật
+     * bằng một câu UPDATE có điều kiện cho mỗi nhóm trạng thái hiện tại. Đơn không hợp lệ được trả về kèm lý do.
+     */
+    @Transactional
+    public BulkStatusUpdateResult bulkUpdateOrderStatus(Collection<Long> orderIds, OrderStatus next) {
+        Set<Long> requested = new LinkedHashSet<>(orderIds);
+        Map<Long, String> failed = new LinkedHashMap<>();
+        Map<OrderStatus, List<Long>> byCurrent = new EnumMap<>(OrderStatus.class);
+        Set<Long> found = new HashSet<>();
+        for (OrderStatusRow row : orderRepository.findStatusRowsByIdIn(requested)) {
+            found.add(row.getId());
             try {
-                emailService.sendOrderConfirmationEmail(orderWithDetails);
-            } catch (MessagingException e) {
-                logger.error("Failed to send COD order confirmation email: {}", e.getMessage(), e);
+                row.getOrderStatus().requireTransitionTo(next);
+                byCurrent.computeIfAbsent(row.getOrderStatus(), status -> new ArrayList<>()).add(row.getId());
+            } catch (IllegalStateException e) {
+                failed.put(row.getId(), e.getMessage());
             }
         }
+        requested.stream()
+                .filter(id -> !found.contains(id))
+                .forEach(id -> failed.put(id, "Không tìm thấy đơn hàng"));
+
+        Instant now = Instant.now();
+        List<Long> updated = new ArrayList<>();
+        byCurrent.forEach((current, ids) -> {
+            int count = next == OrderStatus.DELIVERED
+                    ? orderRepository.compareAndSetStatusIn(ids, current, next, now)
+                    : orderRepository.compareAndSetStatusIn(ids, current, next);
+            List<Long> applied = count == ids.size() ? ids : reconcile(ids, next, failed);
+            applied.forEach(id -> eventPublisher.publishEvent(new OrderStatusChangedEvent(id, current, next)));
+            updated.addAll(applied);
+        });
+        return new BulkStatusUpdateResult(updated, failed);
+    }
 
-        return savedOrder;
+    // Một số đơn vừa bị đổi trạng thái bởi giao dịch khác: chỉ giữ các đơn đã thực sự được cập nhật
+    private List<Long> reconcile(List<Long> ids, OrderStatus next, Map<Long, String> failed) {
+        Set<Long> applied = orderRepository.findStatusRowsByIdIn(ids).stream()
+                .filter(row -> row.getOrderStatus() == next)
+                .map(OrderStatusRow::getId)
+                .collect(Collectors.toSet());
+        ids.stream()
+                .filter(id -> !applied.contains(id))
+                .forEach(id -> failed.put(id, "Trạng thái đơn hàng vừa bị thay đổi, vui lòng thử lại"));
+        return ids.stream().filter(applied::contains).toList();
     }
 
     public Page<Order> getUserOrders(Long userId, Pageable pageable) {
         return orderRepository.findByUserId(userId, pageable);
     }
 
+    public Slice<Order> getUserOrdersAfter(Long userId, KeysetCursor cursor, int size) {
+        return orderRepository.findByUserIdKeyset(userId, cursorBookingDate(cursor), cursor.id(), PageRequest.of(0, size));
+    }
+
+    public Slice<Order> getAllOrdersAfter(KeysetCursor cursor, int size) {
+        return orderRepository.findAllKeyset(cursorBookingDate(cursor), cursor.id(), PageRequest.of(0, size));
+    }
+
+    /**
+     * Con trỏ trỏ tới trang đơn hàng kế tiếp (theo bookingDate, id giảm dần), hoặc null nếu đã hết.
+     */
+    public String nextCursor(Slice<Order> slice) {
+        if (!slice.hasNext() || !slice.hasContent()) {
+            return null;
+        }
+        Order last = slice.getContent().get(slice.getNumberOfElements() - 1);
+        return KeysetCursor.encode(last.getBookingDate(), last.getId());
+    }
+
+    private Instant cursorBookingDate(KeysetCursor cursor) {
+        try {
+            return cursor.key() != null ? Instant.parse(cursor.key()) : null;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Con trỏ phân trang không hợp lệ");
+        }
+    }
+
     public Page<Order> getAllOrders(Pageable pageable) {
         return orderRepository.findAll(pageable);
     }
@@ -205,25 +412,4 @@ public class OrderService {
 
         return dto;
     }
-
-    public BigDecimal getTotalSales() {
-        List<Order> deliveredOrders = orderRepository.findByOrderStatus(OrderStatus.DELIVERED);
-        return deliveredOrders.stream()
-                .map(Order::getTotalMoney)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    public Map<String, BigDecimal> getSalesByCategory() {
-        List<Order> deliveredOrders = orderRepository.findByOrderStatus(OrderStatus.DELIVERED);
-        Map<String, BigDecimal> salesByCategory = new HashMap<>();
-        for (Order order : deliveredOrders) {
-            List<OrderDetail> details = orderDetailRepository.findByOrderId(order.getId());
-            for (OrderDetail detail : details) {
-                String category = detail.getVariant().getProduct().getCategory().getName();
-                BigDecimal price = detail.getPriceWithQuantity();
-                salesByCategory.merge(category, price, BigDecimal::add);
-            }
-        }
-        return salesByCategory;
-    }
-}
\ No newline at end of file
+}
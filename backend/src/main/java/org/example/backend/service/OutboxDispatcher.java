@@ -0,0 +1,150 @@
+package org.example.backend.service;
+
+import org.example.backend.entity.Order;
+import org.example.backend.entity.OutboxEvent;
+import org.example.backend.event.OrderPlacedEvent;
+import org.example.backend.event.ProductChangedEvent;
+import org.example.backend.repository.OrderRepository;
+import org.example.backend.repository.OutboxEventRepository;
+import org.example.backend.repository.ProcessedOrderEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Định kỳ nhận các tác vụ outbox đến hạn theo lô và thực thi ngoài transaction đặt hàng.
+ * Mỗi lô được nhận bằng một lease (locked_until) qua câu UPDATE có điều kiện nên nhiều instance không lấy trùng dòng.
+ * Tác vụ lỗi được thử lại với thời gian chờ tăng dần (lũy thừa 2); tới outbox.max-attempts thì chuyển sang dead-letter (dead_at).
+ * <p>
+ * Việc giao là ít nhất một lần: nếu tiến trình dừng sau khi xử lý mà trước khi xóa dòng, hoặc lease hết hạn giữa chừng,
+ * tác vụ sẽ chạy lại. Các consumer vì vậy phải idempotent (SalesRankService và email xác nhận ghi dấu processed_order_event,
+ * các chỉ mục / cache sản phẩm chỉ nạp lại từ DB).
+ */
+@Service
+public class OutboxDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+    private static final String EMAIL_CONSUMER = "order-email";
+    private static final String CONFIRMATION = "CONFIRMATION";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OrderRepository orderRepository;
+    private final EmailService emailService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProcessedOrderEventRepository processedOrderEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Duration lease;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            OrderRepository orderRepository,
+                            EmailService emailService,
+                            ApplicationEventPublisher eventPublisher,
+                            ProcessedOrderEventRepository processedOrderEventRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${outbox.batch-size:100}") int batchSize,
+                            @Value("${outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${outbox.retry-delay:PT5S}") Duration retryDelay,
+                            @Value("${outbox.lease:PT5M}") Duration lease) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.orderRepository = orderRepository;
+        this.emailService = emailService;
+        this.eventPublisher = eventPublisher;
+        this.processedOrderEventRepository = processedOrderEventRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.lease = lease;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval:PT1S}")
+    public void dispatch() {
+        List<Long> due;
+        do {
+            Instant now = Instant.now();
+            due = outboxEventRepository.findDueIds(now, PageRequest.of(0, batchSize));
+            if (due.isEmpty()) {
+                return;
+            }
+            String token = UUID.randomUUID().toString();
+            if (outboxEventRepository.claim(due, token, now, now.plus(lease)) == 0) {
+                // Instance khác đã nhận cả lô này
+                continue;
+            }
+            List<OutboxEvent> events = outboxEventRepository.findByClaimTokenOrderById(token);
+            List<Long> done = new ArrayList<>(events.size());
+            List<OutboxEvent> failed = new ArrayList<>();
+            for (OutboxEvent event : events) {
+                try {
+                    handle(event);
+                    done.add(event.getId());
+                } catch (Exception e) {
+                    markFailed(event, e);
+                    failed.add(event);
+                }
+            }
+            outboxEventRepository.deleteAllByIdInBatch(done);
+            outboxEventRepository.saveAll(failed);
+        } while (due.size() == batchSize);
+    }
+
+    private void handle(OutboxEvent event) throws Exception {
+        switch (event.getEventType()) {
+            case ORDER_PLACED -> eventPublisher.publishEvent(new OrderPlacedEvent(event.getAggregateId()));
+            case PRODUCT_CHANGED -> eventPublisher.publishEvent(new ProductChangedEvent(event.getAggregateId()));
+            case ORDER_CONFIRMATION_EMAIL -> {
+                Order order = orderRepository.findByIdWithDetails(event.getAggregateId())
+                        .orElseThrow(() -> new IllegalArgumentException("Order not found: " + event.getAggregateId()));
+                sendConfirmationEmailOnce(order);
+            }
+        }
+    }
+
+    // Dấu được ghi trong cùng transaction với lần gửi: gửi lỗi thì dấu bị rollback và lần thử sau gửi lại
+    private void sendConfirmationEmailOnce(Order order) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (processedOrderEventRepository.markProcessed(EMAIL_CONSUMER, order.getId(), CONFIRMATION) == 0) {
+                logger.info("Email xác nhận đơn hàng {} đã được gửi trước đó, bỏ qua", order.getId());
+                return;
+            }
+            try {
+                emailService.deliverOrderConfirmationEmail(order);
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        });
+    }
+
+    private void markFailed(OutboxEvent event, Exception e) {
+        int attempts = event.getAttempts() + 1;
+        Duration backoff = retryDelay.multipliedBy(1L << Math.min(attempts - 1, 20));
+        event.setAttempts(attempts);
+        event.setLockedUntil(null);
+        event.setClaimToken(null);
+        event.setNextAttemptAt(Instant.now().plus(backoff.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff));
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+        event.setLastError(message.length() > 500 ? message.substring(0, 500) : message);
+        if (attempts >= maxAttempts) {
+            event.setDeadAt(Instant.now());
+            logger.error("Chuyển tác vụ outbox #{} ({}, aggregateId={}) sang dead-letter sau {} lần thử: {}",
+                    event.getId(), event.getEventType(), event.getAggregateId(), attempts, message);
+        } else {
+            logger.warn("Tác vụ outbox #{} ({}) lỗi, thử lại lần {}: {}", event.getId(), event.getEventType(), attempts, message);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.backend.entity.OutboxEvent;
+import org.example.backend.enums.OutboxEventType;
+import org.example.backend.repository.OutboxEventRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Ghi tác vụ phụ vào bảng outbox trong cùng transaction nghiệp vụ; OutboxDispatcher sẽ chạy chúng sau khi commit.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+    private final OutboxEventRepository outboxEventRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(OutboxEventType type, Long aggregateId) {
+        enqueueAll(type, List.of(aggregateId));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(OutboxEventType type, Collection<Long> aggregateIds) {
+        Instant now = Instant.now();
+        List<OutboxEvent> events = aggregateIds.stream().map(aggregateId -> {
+            OutboxEvent event = new OutboxEvent();
+            event.setEventType(type);
+            event.setAggregateId(aggregateId);
+            event.setCreatedAt(now);
+            event.setNextAttemptAt(now);
+            return event;
+        }).toList();
+        outboxEventRepository.saveAll(events);
+    }
+}
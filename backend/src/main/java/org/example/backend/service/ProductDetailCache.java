@@ -0,0 +1,65 @@
+package org.example.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.backend.event.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/**
+ * Bộ nhớ đệm JSON đã serialize của ProductDetailDTO theo id sản phẩm.
+ * Giới hạn theo tổng số byte (W-TinyLFU của Caffeine), có TTL và bị xóa đúng mục
+ * khi admin sửa sản phẩm hoặc tồn kho thay đổi. Số liệu hit/miss/eviction có tại
+ * /actuator/metrics/cache.* (cache=productDetail).
+ */
+@Service
+public class ProductDetailCache {
+    private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, byte[]> cache;
+
+    public ProductDetailCache(ProductService productService,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${product.detail-cache.max-bytes:33554432}") long maxBytes,
+                              @Value("${product.detail-cache.ttl:PT10M}") Duration ttl) {
+        this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long id, byte[] json) -> json.length)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productDetail");
+    }
+
+    /**
+     * JSON chi tiết sản phẩm; chỉ dựng lại từ cơ sở dữ liệu khi chưa có trong bộ nhớ đệm.
+     */
+    public byte[] getProductDetailsJson(Long id) {
+        return cache.get(id, this::serialize);
+    }
+
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        cache.invalidate(event.getProductId());
+    }
+
+    private byte[] serialize(Long id) {
+        try {
+            return objectMapper.writeValueAsBytes(productService.getProductDetails(id));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không thể serialize chi tiết sản phẩm ID: " + id, e);
+        }
+    }
+}
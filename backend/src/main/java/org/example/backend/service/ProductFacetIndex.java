@@ -0,0 +1,325 @@
+package org.example.backend.service;
+
+import org.example.backend.dto.ProductGridRow;
+import org.example.backend.event.ProductChangedEvent;
+import org.example.backend.repository.ProductRepository;
+import org.example.backend.util.KeysetCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục facet trong bộ nhớ: mỗi giá trị danh mục, thương hiệu, khoảng giá và cờ còn hàng
+ * là một bitmap (BitSet đánh số theo id sản phẩm). Bộ lọc chọn nhiều giá trị được trả lời bằng
+ * phép OR trong cùng facet và AND giữa các facet, kèm số lượng theo từng giá trị facet.
+ */
+@Service
+public class ProductFacetIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    public static final String FACET_CATEGORY = "category";
+    public static final String FACET_BRAND = "brand";
+    public static final String FACET_PRICE = "price";
+    public static final String FACET_IN_STOCK = "inStock";
+
+    /**
+     * Khoảng giá [min, max), max null nghĩa là không giới hạn trên.
+     */
+    public record PriceBucket(String key, BigDecimal min, BigDecimal max) {
+        boolean contains(BigDecimal price) {
+            return price.compareTo(min) >= 0 && (max == null || price.compareTo(max) < 0);
+        }
+    }
+
+    public static final List<PriceBucket> PRICE_BUCKETS = List.of(
+            new PriceBucket("0-100000", BigDecimal.ZERO, new BigDecimal("100000")),
+            new PriceBucket("100000-200000", new BigDecimal("100000"), new BigDecimal("200000")),
+            new PriceBucket("200000-500000", new BigDecimal("200000"), new BigDecimal("500000")),
+            new PriceBucket("500000-1000000", new BigDecimal("500000"), new BigDecimal("1000000")),
+            new PriceBucket("1000000+", new BigDecimal("1000000"), null));
+
+    /**
+     * Các giá trị được chọn cho từng facet; tập rỗng nghĩa là không lọc theo facet đó.
+     */
+    public record Selection(Set<String> categories, Set<String> brands, Set<String> priceBuckets, boolean inStockOnly) {
+    }
+
+    private record Doc(Long id, String name, BigDecimal price, String category, String brand, boolean inStock) {
+    }
+
+    private static final Comparator<Doc> BY_NAME = Comparator
+            .comparing(Doc::name, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(Doc::id);
+    private static final Comparator<Doc> BY_PRICE = Comparator
+            .comparing(Doc::price)
+            .thenComparing(Doc::id);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private final BitSet all = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private final Map<String, BitSet> byCategory = new HashMap<>();
+    private final Map<String, BitSet> byBrand = new HashMap<>();
+    private final Map<String, BitSet> byPriceBucket = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Danh sách sắp xếp sẵn theo tên / giá, dựng lại lười khi chỉ mục thay đổi
+    private List<Doc> sortedByName;
+    private List<Doc> sortedByPrice;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Long> ids = productRepository.findAllIds();
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            all.clear();
+            inStock.clear();
+            byCategory.clear();
+            byBrand.clear();
+            byPriceBucket.clear();
+            for (int from = 0; from < ids.size(); from += REBUILD_BATCH_SIZE) {
+                List<Long> batch = ids.subList(from, Math.min(from + REBUILD_BATCH_SIZE, ids.size()));
+                indexRows(productRepository.findGridRowsByProductIds(batch));
+            }
+            invalidateOrderings();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Đã dựng chỉ mục facet cho {} sản phẩm", ids.size());
+    }
+
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        List<ProductGridRow> rows = productRepository.findGridRowsByProductIds(List.of(event.getProductId()));
+        lock.writeLock().lock();
+        try {
+            remove(event.getProductId());
+            indexRows(rows);
+            invalidateOrderings();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public static boolean isPriceBucket(String key) {
+        return PRICE_BUCKETS.stream().anyMatch(bucket -> bucket.key().equals(key));
+    }
+
+    /**
+     * Bitmap các sản phẩm thỏa mãn toàn bộ lựa chọn.
+     */
+    public BitSet match(Selection selection) {
+        lock.readLock().lock();
+        try {
+            return matchExcept(selection, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Số lượng sản phẩm theo từng giá trị facet (kiểu facet "disjunctive": khi đếm một facet thì bỏ qua
+     * lựa chọn của chính facet đó). base giới hạn tập sản phẩm (ví dụ kết quả tìm kiếm), null = tất cả.
+     */
+    public Map<String, Map<String, Integer>> facetCounts(Selection selection, BitSet base) {
+        lock.readLock().lock();
+        try {
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            facets.put(FACET_CATEGORY, countValues(byCategory, matchExcept(selection, FACET_CATEGORY), base));
+            facets.put(FACET_BRAND, countValues(byBrand, matchExcept(selection, FACET_BRAND), base));
+            facets.put(FACET_PRICE, countValues(byPriceBucket, matchExcept(selection, FACET_PRICE), base));
+            facets.put(FACET_IN_STOCK, countValues(Map.of("true", inStock), matchExcept(selection, FACET_IN_STOCK), base));
+            return facets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Id các sản phẩm thuộc matches theo thứ tự sắp xếp (name / price, id để ổn định),
+     * bắt đầu ngay sau con trỏ nếu có.
+     */
+    public List<Long> orderedIds(BitSet matches, String sortBy, String sortOrder, KeysetCursor cursor) {
+        boolean asc = sortOrder.equalsIgnoreCase("asc");
+        lockReadWithOrderings();
+        try {
+            boolean byPrice = sortBy.equals("price");
+            List<Doc> sorted = byPrice ? sortedByPrice : sortedByName;
+            Comparator<Doc> comparator = byPrice ? BY_PRICE : BY_NAME;
+            int start = asc ? 0 : sorted.size() - 1;
+            if (cursor != null && !cursor.isStart()) {
+                Doc cursorDoc = byPrice
+                        ? new Doc(cursor.id(), null, cursor.key() != null ? new BigDecimal(cursor.key()) : BigDecimal.ZERO, null, null, false)
+                        : new Doc(cursor.id(), cursor.key(), null, null, null, false);
+                int position = Collections.binarySearch(sorted, cursorDoc, comparator);
+                if (position >= 0) {
+                    start = asc ? position + 1 : position - 1;
+                } else {
+                    int insertion = -position - 1;
+                    start = asc ? insertion : insertion - 1;
+                }
+            }
+            List<Long> result = new ArrayList<>();
+            for (int i = start; i >= 0 && i < sorted.size(); i += asc ? 1 : -1) {
+                Long id = sorted.get(i).id();
+                if (matches.get(Math.toIntExact(id))) {
+                    result.add(id);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Giá trị khóa sắp xếp của một sản phẩm, dùng để mã hóa con trỏ trang kế tiếp.
+     */
+    public Object sortKey(Long productId, String sortBy) {
+        lock.readLock().lock();
+        try {
+            Doc doc = docs.get(productId);
+            if (doc == null) {
+                return null;
+            }
+            return sortBy.equals("price") ? doc.price() : doc.name();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet matchExcept(Selection selection, String skippedFacet) {
+        BitSet result = (BitSet) all.clone();
+        if (!FACET_CATEGORY.equals(skippedFacet)) {
+            andAny(result, byCategory, selection.categories());
+        }
+        if (!FACET_BRAND.equals(skippedFacet)) {
+            andAny(result, byBrand, selection.brands());
+        }
+        if (!FACET_PRICE.equals(skippedFacet)) {
+            andAny(result, byPriceBucket, selection.priceBuckets());
+        }
+        if (!FACET_IN_STOCK.equals(skippedFacet) && selection.inStockOnly()) {
+            result.and(inStock);
+        }
+        return result;
+    }
+
+    private void andAny(BitSet result, Map<String, BitSet> facet, Set<String> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        BitSet union = new BitSet();
+        for (String value : values) {
+            BitSet bits = facet.get(value);
+            if (bits != null) {
+                union.or(bits);
+            }
+        }
+        result.and(union);
+    }
+
+    private Map<String, Integer> countValues(Map<String, BitSet> facet, BitSet matches, BitSet base) {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Map.Entry<String, BitSet> entry : facet.entrySet()) {
+            BitSet bits = (BitSet) entry.getValue().clone();
+            bits.and(matches);
+            if (base != null) {
+                bits.and(base);
+            }
+            counts.put(entry.getKey(), bits.cardinality());
+        }
+        return counts;
+    }
+
+    private void indexRows(List<ProductGridRow> rows) {
+        Map<Long, List<ProductGridRow>> rowsByProduct = new LinkedHashMap<>();
+        for (ProductGridRow row : rows) {
+            rowsByProduct.computeIfAbsent(row.getProductId(), k -> new ArrayList<>()).add(row);
+        }
+        rowsByProduct.values().forEach(this::indexProduct);
+    }
+
+    private void indexProduct(List<ProductGridRow> rows) {
+        ProductGridRow first = rows.get(0);
+        BigDecimal price = rows.stream()
+                .map(ProductGridRow::getPrice)
+                .filter(Objects::nonNull)
+                .min(Comparator.naturalOrder())
+                .orElse(BigDecimal.ZERO);
+        boolean available = rows.stream().anyMatch(row -> row.getQuantity() != null && row.getQuantity() > 0);
+        Doc doc = new Doc(first.getProductId(), first.getName(), price, first.getCategory(), first.getBrand(), available);
+
+        int bit = Math.toIntExact(doc.id());
+        docs.put(doc.id(), doc);
+        all.set(bit);
+        if (doc.inStock()) {
+            inStock.set(bit);
+        }
+        if (doc.category() != null) {
+            byCategory.computeIfAbsent(doc.category(), k -> new BitSet()).set(bit);
+        }
+        if (doc.brand() != null) {
+            byBrand.computeIfAbsent(doc.brand(), k -> new BitSet()).set(bit);
+        }
+        for (PriceBucket bucket : PRICE_BUCKETS) {
+            if (bucket.contains(price)) {
+                byPriceBucket.computeIfAbsent(bucket.key(), k -> new BitSet()).set(bit);
+            }
+        }
+    }
+
+    private void remove(Long productId) {
+        Doc previous = docs.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        int bit = Math.toIntExact(productId);
+        all.clear(bit);
+        inStock.clear(bit);
+        byCategory.values().forEach(bits -> bits.clear(bit));
+        byBrand.values().forEach(bits -> bits.clear(bit));
+        byPriceBucket.values().forEach(bits -> bits.clear(bit));
+    }
+
+    /**
+     * Giữ khóa đọc với danh sách sắp xếp đã sẵn sàng; nếu cần dựng lại thì dựng dưới khóa ghi rồi hạ xuống khóa đọc.
+     */
+    private void lockReadWithOrderings() {
+        lock.readLock().lock();
+        if (sortedByName != null) {
+            return;
+        }
+        lock.readLock().unlock();
+        lock.writeLock().lock();
+        try {
+            if (sortedByName == null) {
+                sortedByName = new ArrayList<>(docs.values());
+                sortedByName.sort(BY_NAME);
+                sortedByPrice = new ArrayList<>(docs.values());
+                sortedByPrice.sort(BY_PRICE);
+            }
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void invalidateOrderings() {
+        sortedByName = null;
+        sortedByPrice = null;
+    }
+}
@@ -0,0 +1,221 @@
+package org.example.backend.service;
+
+import org.example.backend.dto.ProductGridRow;
+import org.example.backend.event.ProductChangedEvent;
+import org.example.backend.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Chỉ mục đảo ngược (inverted index) trong bộ nhớ cho tìm kiếm sản phẩm.
+ * Đánh chỉ mục tên, thương hiệu, danh mục và mô tả sau khi bỏ dấu tiếng Việt,
+ * xếp hạng theo TF-IDF có trọng số theo trường và cập nhật ngay khi admin ghi dữ liệu.
+ */
+@Service
+public class ProductSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float BRAND_WEIGHT = 2.0f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 0.5f;
+    // Khớp tiền tố (người dùng đang gõ dở) được tính điểm thấp hơn khớp nguyên từ
+    private static final float PREFIX_MATCH_FACTOR = 0.6f;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, IndexedProduct> documents = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Thông tin tối thiểu của một sản phẩm đã đánh chỉ mục, đủ để lọc và sắp xếp kết quả.
+     */
+    public record IndexedProduct(Long id, String name, String brand, String category, BigDecimal price,
+                                 Set<String> terms) {
+    }
+
+    /**
+     * Một kết quả tìm kiếm kèm điểm liên quan.
+     */
+    public record Hit(IndexedProduct product, float score) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Long> ids = productRepository.findAllIds();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            for (int from = 0; from < ids.size(); from += REBUILD_BATCH_SIZE) {
+                List<Long> batch = ids.subList(from, Math.min(from + REBUILD_BATCH_SIZE, ids.size()));
+                indexRows(productRepository.findGridRowsByProductIds(batch));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Đã dựng chỉ mục tìm kiếm cho {} sản phẩm", ids.size());
+    }
+
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        refresh(event.getProductId());
+    }
+
+    public void refresh(Long productId) {
+        List<ProductGridRow> rows = productRepository.findGridRowsByProductIds(List.of(productId));
+        lock.writeLock().lock();
+        try {
+            remove(productId);
+            indexRows(rows);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tìm các sản phẩm khớp với tất cả các từ trong từ khóa (từ cuối được khớp theo tiền tố),
+     * có lọc theo danh mục / thương hiệu (null = bỏ qua). Kết quả sắp xếp theo điểm giảm dần.
+     */
+    public List<Hit> search(String keyword, String category, String brand) {
+        List<String> queryTerms = tokenize(keyword);
+        if (queryTerms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Float> scores = null;
+            for (int i = 0; i < queryTerms.size(); i++) {
+                Map<Long, Float> termScores = scoreTerm(queryTerms.get(i), i == queryTerms.size() - 1);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((id, score) -> score + termScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+            List<Hit> hits = new ArrayList<>(scores.size());
+            for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+                IndexedProduct product = documents.get(entry.getKey());
+                if ((category == null || category.equals(product.category()))
+                        && (brand == null || brand.equals(product.brand()))) {
+                    hits.add(new Hit(product, entry.getValue()));
+                }
+            }
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed().thenComparing(hit -> hit.product().id()));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Chuẩn hóa chuỗi: bỏ dấu tiếng Việt (kể cả đ/Đ), chuyển chữ thường và tách thành các từ.
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new ArrayList<>();
+        }
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_ALPHANUMERIC.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private Map<Long, Float> scoreTerm(String queryTerm, boolean allowPrefix) {
+        Map<Long, Float> scores = new HashMap<>();
+        Map<String, Map<Long, Float>> matches = allowPrefix
+                ? postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, true)
+                : postings.containsKey(queryTerm) ? Map.of(queryTerm, postings.get(queryTerm)) : Map.of();
+        for (Map.Entry<String, Map<Long, Float>> match : matches.entrySet()) {
+            Map<Long, Float> docs = match.getValue();
+            float idf = (float) Math.log(1.0 + (double) documents.size() / docs.size());
+            float factor = match.getKey().equals(queryTerm) ? 1.0f : PREFIX_MATCH_FACTOR;
+            for (Map.Entry<Long, Float> doc : docs.entrySet()) {
+                float score = idf * factor * doc.getValue();
+                scores.merge(doc.getKey(), score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private void indexRows(List<ProductGridRow> rows) {
+        Map<Long, List<ProductGridRow>> rowsByProduct = new LinkedHashMap<>();
+        for (ProductGridRow row : rows) {
+            rowsByProduct.computeIfAbsent(row.getProductId(), k -> new ArrayList<>()).add(row);
+        }
+        rowsByProduct.values().forEach(this::indexProduct);
+    }
+
+    private void indexProduct(List<ProductGridRow> rows) {
+        ProductGridRow first = rows.get(0);
+        // Giá dùng để sắp xếp: giá thấp nhất trong các biến thể (0 nếu chưa có), giống truy vấn keyset
+        BigDecimal price = rows.stream()
+                .map(ProductGridRow::getPrice)
+                .filter(Objects::nonNull)
+                .min(Comparator.naturalOrder())
+                .orElse(BigDecimal.ZERO);
+
+        Map<String, Float> weights = new HashMap<>();
+        addField(weights, first.getName(), NAME_WEIGHT);
+        addField(weights, first.getBrand(), BRAND_WEIGHT);
+        addField(weights, first.getCategory(), CATEGORY_WEIGHT);
+        addField(weights, first.getDescription(), DESCRIPTION_WEIGHT);
+
+        IndexedProduct product = new IndexedProduct(first.getProductId(), first.getName(), first.getBrand(),
+                first.getCategory(), price, weights.keySet());
+        documents.put(product.id(), product);
+        weights.forEach((term, weight) -> postings.computeIfAbsent(term, k -> new HashMap<>()).put(product.id(), weight));
+    }
+
+    private void addField(Map<String, Float> weights, String text, float weight) {
+        for (String term : tokenize(text)) {
+            weights.merge(term, weight, Float::sum);
+        }
+    }
+
+    private void remove(Long productId) {
+        IndexedProduct previous = documents.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms()) {
+            Map<Long, Float> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(productId);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+}
@@ -2,23 +2,39 @@ package org.example.backend.service;
 
 import org.example.backend.dto.ImageDTO;
 import org.example.backend.dto.ProductDetailDTO;
+import org.example.backend.dto.ProductFilterResult;
 import org.example.backend.dto.ProductGridDTO;
+import org.example.backend.dto.ProductGridRow;
 import org.example.backend.dto.ProductVariantDTO;
 import org.example.backend.entity.Product;
-import org.example.backend.entity.ProductImage;
 import org.example.backend.repository.ProductRepository;
+import org.example.backend.repository.ProductVariantRepository;
+import org.example.backend.util.KeysetCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,6 +44,26 @@ public class ProductService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private SalesRankService salesRankService;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillDisplayPrices() {
+        int updated = productRepository.backfillDisplayPrices();
+        if (updated > 0) {
+            logger.info("Đã cập nhật display_price cho {} sản phẩm", updated);
+        }
+    }
+
     public Page<Product> getAllProductsForGrid(int page, int size) {
         logger.info("Lấy sản phẩm cho trang: {}, kích thước: {}", page, size);
         Pageable pageable = PageRequest.of(page, size);
@@ -40,54 +76,203 @@ public class ProductService {
         if (keyword == null || keyword.trim().isEmpty()) {
             return productRepository.findAll(pageable);
         }
-        return productRepository.findByNameContainingIgnoreCaseOrBrandNameContainingIgnoreCase(keyword, pageable);
+        return searchIndexPage(keyword, null, null, pageable, null, null);
     }
 
     public Page<Product> getSortedProducts(String keyword, int page, int size, String sortBy, String sortOrder) {
         logger.info("Lấy sản phẩm sắp xếp với từ khóa: {}, trang: {}, kích thước: {}, sắp xếp theo: {}, thứ tự: {}", keyword, page, size, sortBy, sortOrder);
         Pageable pageable = PageRequest.of(page, size);
 
-        if (sortBy.equals("price")) {
-            if (keyword == null || keyword.trim().isEmpty()) {
-                return sortOrder.equalsIgnoreCase("asc")
-                        ? productRepository.findAllByPriceAsc(pageable)
-                        : productRepository.findAllByPriceDesc(pageable);
-            } else {
-                return sortOrder.equalsIgnoreCase("asc")
-                        ? productRepository.findByNameOrBrandByPriceAsc(keyword, pageable)
-                        : productRepository.findByNameOrBrandByPriceDesc(keyword, pageable);
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            return searchIndexPage(keyword, null, null, pageable, sortBy, sortOrder);
+        }
+        return productRepository.findAll(PageRequest.of(page, size, listingSort(sortBy, sortOrder)));
+    }
+
+    /**
+     * Lọc sản phẩm qua chỉ mục facet trong bộ nhớ (chọn nhiều danh mục / thương hiệu / khoảng giá, còn hàng),
+     * kết hợp với chỉ mục tìm kiếm khi có từ khóa. Chỉ truy vấn DB để dựng DTO của trang hiện tại.
+     * cursor khác null nghĩa là phân trang keyset, khi đó page bị bỏ qua.
+     */
+    public ProductFilterResult getFilteredProducts(String keyword, ProductFacetIndex.Selection selection, int page, int size,
+                                                   String sortBy, String sortOrder, KeysetCursor cursor) {
+        logger.info("Lọc sản phẩm với từ khóa: {}, bộ lọc: {}, trang: {}, kích thước: {}, sắp xếp theo: {}, thứ tự: {}",
+                keyword, selection, page, size, sortBy, sortOrder);
+        BitSet matches = productFacetIndex.match(selection);
+        BitSet searchMatches = null;
+        List<Long> ordered;
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            List<ProductSearchIndex.Hit> hits = productSearchIndex.search(keyword, null, null);
+            Comparator<ProductSearchIndex.Hit> comparator = hitComparator(sortBy, sortOrder);
+            hits.sort(comparator);
+            searchMatches = new BitSet();
+            for (ProductSearchIndex.Hit hit : hits) {
+                searchMatches.set(Math.toIntExact(hit.product().id()));
             }
+            int from = cursor != null ? positionAfter(hits, cursor, sortBy, comparator) : 0;
+            ordered = hits.subList(from, hits.size()).stream()
+                    .map(hit -> hit.product().id())
+                    .filter(id -> matches.get(Math.toIntExact(id)))
+                    .collect(Collectors.toList());
         } else {
-            Sort sort = Sort.by(sortOrder.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC, sortBy);
-            pageable = PageRequest.of(page, size, sort);
-            if (keyword == null || keyword.trim().isEmpty()) {
-                return productRepository.findAll(pageable);
+            ordered = productFacetIndex.orderedIds(matches, sortBy, sortOrder, cursor);
+        }
+        Map<String, Map<String, Integer>> facets = productFacetIndex.facetCounts(selection, searchMatches);
+
+        if (cursor != null) {
+            List<Long> ids = new ArrayList<>(ordered.subList(0, Math.min(size, ordered.size())));
+            boolean hasNext = ordered.size() > size;
+            String nextCursor = null;
+            if (hasNext) {
+                Long last = ids.get(ids.size() - 1);
+                nextCursor = KeysetCursor.encode(productFacetIndex.sortKey(last, sortBy), last);
             }
-            return productRepository.findByNameContainingIgnoreCaseOrBrandNameContainingIgnoreCase(keyword, pageable);
+            return new ProductFilterResult(ids, ordered.size(), hasNext, nextCursor, facets);
         }
+        int from = (int) Math.min((long) page * size, ordered.size());
+        int to = Math.min(from + size, ordered.size());
+        return new ProductFilterResult(new ArrayList<>(ordered.subList(from, to)), ordered.size(), to < ordered.size(), null, facets);
     }
 
-    public Page<Product> getFilteredProducts(String keyword, String category, String brand, int page, int size, String sortBy, String sortOrder) {
-        logger.info("Lọc sản phẩm với từ khóa: {}, danh mục: {}, thương hiệu: {}, trang: {}, kích thước: {}, sắp xếp theo: {}, thứ tự: {}",
-                keyword, category, brand, page, size, sortBy, sortOrder);
-        Pageable pageable;
+    /**
+     * Sắp xếp cho các trang danh sách; giá dùng cột display_price (có chỉ mục) và id để thứ tự ổn định.
+     */
+    private Sort listingSort(String sortBy, String sortOrder) {
+        Sort.Direction direction = sortOrder.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        return Sort.by(direction, sortBy.equals("price") ? "displayPrice" : sortBy).and(Sort.by(direction, "id"));
+    }
 
-        if (sortBy.equals("price")) {
-            pageable = PageRequest.of(page, size);
-            return sortOrder.equalsIgnoreCase("asc")
-                    ? productRepository.findByFiltersPriceAsc(keyword, category, brand, pageable)
-                    : productRepository.findByFiltersPriceDesc(keyword, category, brand, pageable);
-        } else {
-            Sort sort = Sort.by(sortOrder.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC, sortBy);
-            pageable = PageRequest.of(page, size, sort);
-            return productRepository.findByFilters(keyword, category, brand, pageable);
+    /**
+     * Lấy sản phẩm theo chế độ phân trang keyset (con trỏ): mỗi trang là một lần quét khoảng
+     * theo (khóa sắp xếp, id) và không chạy COUNT(*). sortBy "id" dùng cho trang lưới không sắp xếp.
+     */
+    public Slice<Product> getProductsAfter(String keyword, String category, String brand, String sortBy, String sortOrder,
+                                           KeysetCursor cursor, int size) {
+        logger.info("Lấy sản phẩm theo con trỏ với từ khóa: {}, danh mục: {}, thương hiệu: {}, kích thước: {}, sắp xếp theo: {}, thứ tự: {}",
+                keyword, category, brand, size, sortBy, sortOrder);
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            return searchIndexSlice(keyword, category, brand, sortBy, sortOrder, cursor, size);
+        }
+        Pageable pageable = PageRequest.of(0, size);
+        boolean asc = sortOrder.equalsIgnoreCase("asc");
+        switch (sortBy) {
+            case "name":
+                return asc
+                        ? productRepository.findNameKeysetAsc(category, brand, cursor.key(), cursor.id(), pageable)
+                        : productRepository.findNameKeysetDesc(category, brand, cursor.key(), cursor.id(), pageable);
+            case "price":
+                BigDecimal price = cursor.key() != null ? new BigDecimal(cursor.key()) : null;
+                return asc
+                        ? productRepository.findPriceKeysetAsc(category, brand, price, cursor.id(), pageable)
+                        : productRepository.findPriceKeysetDesc(category, brand, price, cursor.id(), pageable);
+            default:
+                return productRepository.findIdKeyset(cursor.id(), pageable);
         }
     }
 
-    public List<Product> getBestSellers(int size) {
-        logger.info("Lấy sản phẩm bán chạy, kích thước: {}", size);
-        Pageable pageable = PageRequest.of(0, size);
-        return productRepository.findBestSellers(pageable);
+    /**
+     * Con trỏ trỏ tới trang kế tiếp, hoặc null nếu đã hết dữ liệu.
+     */
+    public String nextCursor(Slice<Product> slice, String sortBy) {
+        if (!slice.hasNext() || !slice.hasContent()) {
+            return null;
+        }
+        Product last = slice.getContent().get(slice.getNumberOfElements() - 1);
+        Object key = switch (sortBy) {
+            case "name" -> last.getName();
+            case "price" -> last.getDisplayPrice();
+            default -> null;
+        };
+        return KeysetCursor.encode(key, last.getId());
+    }
+
+    /**
+     * Tìm kiếm qua chỉ mục toàn văn trong bộ nhớ rồi chỉ load các sản phẩm của trang hiện tại.
+     * sortBy null nghĩa là sắp xếp theo mức độ liên quan.
+     */
+    private Page<Product> searchIndexPage(String keyword, String category, String brand, Pageable pageable, String sortBy, String sortOrder) {
+        List<ProductSearchIndex.Hit> hits = productSearchIndex.search(keyword, category, brand);
+        if (sortBy != null) {
+            hits.sort(hitComparator(sortBy, sortOrder));
+        }
+        int from = (int) Math.min(pageable.getOffset(), hits.size());
+        int to = Math.min(from + pageable.getPageSize(), hits.size());
+        return new PageImpl<>(loadInOrder(hits.subList(from, to)), pageable, hits.size());
+    }
+
+    private Slice<Product> searchIndexSlice(String keyword, String category, String brand, String sortBy, String sortOrder,
+                                            KeysetCursor cursor, int size) {
+        List<ProductSearchIndex.Hit> hits = productSearchIndex.search(keyword, category, brand);
+        Comparator<ProductSearchIndex.Hit> comparator = hitComparator(sortBy, sortOrder);
+        hits.sort(comparator);
+        int from = positionAfter(hits, cursor, sortBy, comparator);
+        int to = Math.min(from + size, hits.size());
+        return new SliceImpl<>(loadInOrder(hits.subList(from, to)), PageRequest.of(0, size), to < hits.size());
+    }
+
+    /**
+     * Vị trí ngay sau con trỏ trong danh sách kết quả đã sắp xếp theo comparator.
+     */
+    private int positionAfter(List<ProductSearchIndex.Hit> hits, KeysetCursor cursor, String sortBy,
+                              Comparator<ProductSearchIndex.Hit> comparator) {
+        if (cursor.isStart()) {
+            return 0;
+        }
+        BigDecimal price = sortBy.equals("price") && cursor.key() != null ? new BigDecimal(cursor.key()) : null;
+        ProductSearchIndex.Hit cursorHit = new ProductSearchIndex.Hit(
+                new ProductSearchIndex.IndexedProduct(cursor.id(), cursor.key(), null, null, price, Set.of()), 0);
+        int position = Collections.binarySearch(hits, cursorHit, comparator);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    private Comparator<ProductSearchIndex.Hit> hitComparator(String sortBy, String sortOrder) {
+        Comparator<ProductSearchIndex.Hit> comparator = switch (sortBy) {
+            case "price" -> Comparator.comparing((ProductSearchIndex.Hit hit) -> hit.product().price(), Comparator.nullsLast(Comparator.<BigDecimal>naturalOrder()));
+            case "name" -> Comparator.comparing((ProductSearchIndex.Hit hit) -> hit.product().name(), Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+            default -> Comparator.comparing((ProductSearchIndex.Hit hit) -> 0);
+        };
+        comparator = comparator.thenComparing(hit -> hit.product().id());
+        return sortOrder.equalsIgnoreCase("asc") ? comparator : comparator.reversed();
+    }
+
+    private List<Product> loadInOrder(List<ProductSearchIndex.Hit> hits) {
+        List<Long> ids = hits.stream()
+                .map(hit -> hit.product().id())
+                .collect(Collectors.toList());
+        Map<Long, Product> productsById = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, product -> product));
+        return ids.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Sản phẩm bán chạy đọc từ bảng xếp hạng duy trì tăng dần (O(K)), bổ sung thêm sản phẩm chưa có
+     * lượt bán khi chưa đủ số lượng yêu cầu (giữ hành vi cũ của trang chủ).
+     */
+    public List<ProductGridDTO> getBestSellers(int size, Long categoryId, Integer days) {
+        logger.info("Lấy sản phẩm bán chạy, kích thước: {}, danh mục: {}, số ngày: {}", size, categoryId, days);
+        List<Long> ids = new ArrayList<>(salesRankService.getTopProductIds(size, categoryId, days));
+        if (ids.size() < size && categoryId == null && days == null) {
+            for (Long id : productRepository.findIdKeyset(null, PageRequest.of(0, size)).map(Product::getId)) {
+                if (ids.size() == size) {
+                    break;
+                }
+                if (!ids.contains(id)) {
+                    ids.add(id);
+                }
+            }
+        }
+        return mapIdsToGridDTO(ids);
+    }
+
+    /**
+     * Sản phẩm được xem nhiều nhất, đọc theo chỉ mục view_count.
+     */
+    public List<ProductGridDTO> getMostViewed(int size) {
+        logger.info("Lấy sản phẩm xem nhiều nhất, kích thước: {}", size);
+        return mapIdsToGridDTO(productRepository.findMostViewedIds(PageRequest.of(0, size)));
     }
 
     public ProductDetailDTO getProductDetails(Long id) {
@@ -97,6 +282,27 @@ public class ProductService {
         return mapToDetailDTO(product);
     }
 
+    /**
+     * Chi tiết nhiều sản phẩm theo đúng thứ tự ids với số truy vấn cố định: một truy vấn cho sản phẩm
+     * kèm thương hiệu, danh mục, biến thể và một truy vấn cho ảnh của các biến thể. Id không tồn tại bị bỏ qua.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductDetailDTO> getProductDetailsBatch(List<Long> ids) {
+        logger.info("Lấy chi tiết {} sản phẩm theo lô", ids.size());
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Product> productsById = productRepository.findWithVariantsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getId, product -> product));
+        // Nạp ảnh cho các biến thể vừa load trong cùng persistence context
+        productVariantRepository.findWithImagesByProductIdIn(productsById.keySet());
+        return ids.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .map(this::mapToDetailDTO)
+                .collect(Collectors.toList());
+    }
+
     public ProductDetailDTO mapToDetailDTO(Product product) {
         ProductDetailDTO dto = new ProductDetailDTO();
         dto.setId(product.getId());
@@ -134,44 +340,63 @@ public class ProductService {
     }
 
     public List<ProductGridDTO> mapToDTO(Page<Product> productPage) {
-        return productPage.stream().map(this::mapProductToDTO).collect(Collectors.toList());
+        return mapIdsToGridDTO(productPage.stream().map(Product::getId).collect(Collectors.toList()));
     }
 
     public List<ProductGridDTO> mapToDTO(List<Product> products) {
-        return products.stream().map(this::mapProductToDTO).collect(Collectors.toList());
+        return mapIdsToGridDTO(products.stream().map(Product::getId).collect(Collectors.toList()));
     }
 
-    private ProductGridDTO mapProductToDTO(Product product) {
+    /**
+     * Dựng danh sách ProductGridDTO theo đúng thứ tự ids bằng một truy vấn projection duy nhất
+     * (thay cho việc duyệt productVariantList -> productImageList -> image của từng entity).
+     */
+    public List<ProductGridDTO> mapIdsToGridDTO(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, List<ProductGridRow>> rowsByProduct = new LinkedHashMap<>();
+        for (ProductGridRow row : productRepository.findGridRowsByProductIds(ids)) {
+            rowsByProduct.computeIfAbsent(row.getProductId(), k -> new ArrayList<>()).add(row);
+        }
+        List<ProductGridDTO> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            List<ProductGridRow> rows = rowsByProduct.get(id);
+            if (rows != null) {
+                result.add(mapRowsToGridDTO(rows));
+            }
+        }
+        return result;
+    }
+
+    private ProductGridDTO mapRowsToGridDTO(List<ProductGridRow> rows) {
+        ProductGridRow first = rows.get(0);
         ProductGridDTO dto = new ProductGridDTO();
-        dto.setId(product.getId());
-        dto.setName(product.getName());
-        dto.setDescription(product.getDescription());
-        dto.setBrand(product.getBrand() != null ? product.getBrand().getName() : "Không xác định");
-        dto.setCategory(product.getCategory() != null ? product.getCategory().getName() : "Không xác định");
+        dto.setId(first.getProductId());
+        dto.setName(first.getName());
+        dto.setDescription(first.getDescription());
+        dto.setBrand(first.getBrand() != null ? first.getBrand() : "Không xác định");
+        dto.setCategory(first.getCategory() != null ? first.getCategory() : "Không xác định");
 
-        if (!product.getProductVariantList().isEmpty()) {
-            var variants = product.getProductVariantList();
-            var mainVariant = variants.stream()
-                    .filter(v -> v.getProductImageList().stream().anyMatch(ProductImage::isMainImage))
+        if (first.getVariantId() != null) {
+            // Biến thể chính là biến thể đầu tiên có ảnh chính, nếu không có thì lấy biến thể đầu tiên
+            ProductGridRow mainVariant = rows.stream()
+                    .filter(row -> row.getMainImagePublicId() != null)
                     .findFirst()
                     .orElseGet(() -> {
-                        logger.warn("Không tìm thấy ảnh chính cho sản phẩm ID: {}. Sử dụng biến thể đầu tiên.", product.getId());
-                        return variants.get(0);
+                        logger.warn("Không tìm thấy ảnh chính cho sản phẩm ID: {}. Sử dụng biến thể đầu tiên.", first.getProductId());
+                        return first;
                     });
 
             dto.setPrice(mainVariant.getPrice());
             dto.setStock(mainVariant.getQuantity());
             dto.setAttributes(mainVariant.getProductAttribute() != null ? mainVariant.getProductAttribute() + " - " + mainVariant.getVariant() : "N/A");
-
-            mainVariant.getProductImageList().stream()
-                    .filter(ProductImage::isMainImage)
-                    .findFirst()
-                    .ifPresent(img -> dto.setMainImageUrl(img.getImage().getPublicId()));
+            dto.setMainImageUrl(mainVariant.getMainImagePublicId());
         } else {
-            logger.warn("Không tìm thấy biến thể cho sản phẩm ID: {}", product.getId());
+            logger.warn("Không tìm thấy biến thể cho sản phẩm ID: {}", first.getProductId());
             dto.setStock(0);
             dto.setAttributes("N/A");
         }
         return dto;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package org.example.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Đếm lượt xem sản phẩm trong bộ nhớ (LongAdder theo từng sản phẩm, không tranh chấp khóa khi nhiều
+ * luồng cùng ghi) và định kỳ ghi dồn xuống cột view_count bằng một lệnh UPDATE theo lô.
+ * Phần chưa ghi được flush khi ứng dụng tắt.
+ */
+@Service
+public class ProductViewCounter {
+    private static final Logger logger = LoggerFactory.getLogger(ProductViewCounter.class);
+    private static final String INCREMENT_SQL = "UPDATE product SET view_count = COALESCE(view_count, 0) + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CatalogVersion catalogVersion;
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public ProductViewCounter(JdbcTemplate jdbcTemplate, CatalogVersion catalogVersion) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalogVersion = catalogVersion;
+    }
+
+    public void recordView(Long productId) {
+        pending.computeIfAbsent(productId, id -> new LongAdder()).increment();
+    }
+
+    @Scheduled(fixedDelayString = "${product.view-counter.flush-interval:PT10S}")
+    public synchronized void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : pending.entrySet()) {
+            long views = entry.getValue().sumThenReset();
+            if (views > 0) {
+                batch.add(new Object[]{views, entry.getKey()});
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(INCREMENT_SQL, batch);
+            catalogVersion.onViewsFlushed();
+        } catch (RuntimeException e) {
+            // Trả lại số lượt xem để lần flush sau ghi tiếp, không làm mất dữ liệu
+            for (Object[] row : batch) {
+                recordViews((Long) row[1], (Long) row[0]);
+            }
+            logger.error("Lỗi khi ghi lượt xem sản phẩm: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        logger.info("Đã ghi lượt xem sản phẩm trước khi tắt ứng dụng");
+    }
+
+    private void recordViews(Long productId, long views) {
+        pending.computeIfAbsent(productId, id -> new LongAdder()).add(views);
+    }
+}
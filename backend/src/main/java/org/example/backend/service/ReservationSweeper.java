@@ -0,0 +1,53 @@
+package org.example.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.backend.repository.StockReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Định kỳ tìm các bản giữ hàng đã hết hạn (theo lô) và hủy đơn online tương ứng để trả hàng về kho,
+ * tránh việc đơn bị bỏ dở trên trang VNPay giữ tồn kho mãi mãi.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReservationSweeper {
+    private static final Logger logger = LoggerFactory.getLogger(ReservationSweeper.class);
+
+    private final StockReservationRepository stockReservationRepository;
+    private final OrderService orderService;
+
+    @Value("${order.reservation.sweep-batch-size:200}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${order.reservation.sweep-interval:PT30S}")
+    public void releaseExpired() {
+        List<Long> orderIds;
+        long lastOrderId = 0;
+        do {
+            orderIds = stockReservationRepository.findExpiredOrderIds(Instant.now(), lastOrderId, PageRequest.of(0, batchSize));
+            int released = 0;
+            for (Long orderId : orderIds) {
+                lastOrderId = orderId;
+                try {
+                    if (orderService.expirePendingOrder(orderId)) {
+                        released++;
+                    }
+                } catch (RuntimeException e) {
+                    // Một đơn lỗi không được chặn các đơn hết hạn khác; lượt quét sau sẽ thử lại đơn này
+                    logger.error("Lỗi khi trả hàng giữ cho đơn hàng #{}: {}", orderId, e.getMessage());
+                }
+            }
+            if (released > 0) {
+                logger.info("Đã hủy {} đơn hàng quá hạn thanh toán và trả hàng về kho", released);
+            }
+        } while (orderIds.size() == batchSize);
+    }
+}
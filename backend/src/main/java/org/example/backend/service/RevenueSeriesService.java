@@ -0,0 +1,188 @@
+package org.example.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.backend.entity.Order;
+import org.example.backend.entity.RevenueDaily;
+import org.example.backend.enums.OrderStatus;
+import org.example.backend.event.OrderStatusChangedEvent;
+import org.example.backend.repository.OrderRepository;
+import org.example.backend.repository.ProcessedOrderEventRepository;
+import org.example.backend.repository.RevenueDailyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chuỗi thời gian doanh thu theo ngày giao (bảng revenue_daily). Được cộng trong cùng transaction với việc
+ * đơn chuyển sang DELIVERED, đúng một lần cho mỗi đơn, nên tổng doanh thu và tăng trưởng chỉ cần đọc các bucket ngày.
+ * Ngày giao được cắt theo app.zone-id, giống câu backfill.
+ */
+@Service
+@RequiredArgsConstructor
+public class RevenueSeriesService {
+    private static final Logger logger = LoggerFactory.getLogger(RevenueSeriesService.class);
+    private static final String CONSUMER = "revenue-daily";
+    private static final String DELIVERED_EVENT = "DELIVERED";
+    private static final int MAX_BUCKETS = 366;
+
+    private final RevenueDailyRepository revenueDailyRepository;
+    private final OrderRepository orderRepository;
+    private final ProcessedOrderEventRepository processedOrderEventRepository;
+    private final ZoneId appZoneId;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (revenueDailyRepository.count() == 0) {
+            int rows = backfill();
+            logger.info("Đã dựng chuỗi doanh thu theo ngày từ lịch sử đơn hàng: {} bản ghi", rows);
+        }
+    }
+
+    /**
+     * Xóa và dựng lại toàn bộ chuỗi doanh thu từ lịch sử đơn hàng (một lần quét set-based).
+     */
+    @Transactional
+    public int rebuild() {
+        revenueDailyRepository.deleteAllRows();
+        int rows = backfill();
+        logger.info("Đã dựng lại chuỗi doanh thu theo ngày: {} bản ghi", rows);
+        return rows;
+    }
+
+    // Các đơn DELIVERED đã nằm trong kết quả backfill nên được đánh dấu là đã cộng
+    private int backfill() {
+        processedOrderEventRepository.deleteByConsumer(CONSUMER);
+        processedOrderEventRepository.markAllProcessed(CONSUMER, DELIVERED_EVENT, List.of(DELIVERED_EVENT));
+        return revenueDailyRepository.backfill();
+    }
+
+    // Marker processed_order_event giữ cho mỗi đơn chỉ được cộng vào revenue_daily một lần, kể cả khi hai transaction cùng giao đơn
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.getNewStatus() == OrderStatus.DELIVERED && event.getPreviousStatus() != OrderStatus.DELIVERED
+                && processedOrderEventRepository.markProcessed(CONSUMER, event.getOrderId(), DELIVERED_EVENT) == 1) {
+            apply(event.getOrderId());
+        }
+    }
+
+    public BigDecimal getTotalSales() {
+        return revenueDailyRepository.sumAllRevenue();
+    }
+
+    /**
+     * Tăng trưởng (%) của n ngày gần nhất so với n ngày liền trước; n = 1 / 7 / 30 cho day / week / month.
+     */
+    public double getGrowthPercentage(String period) {
+        int days = windowDays(period);
+        LocalDate today = LocalDate.now(appZoneId);
+        LocalDate currentFrom = today.minusDays(days - 1L);
+        BigDecimal current = revenueDailyRepository.sumRevenue(currentFrom, today);
+        BigDecimal previous = revenueDailyRepository.sumRevenue(currentFrom.minusDays(days), currentFrom.minusDays(1));
+        if (previous.signum() == 0) {
+            return current.signum() > 0 ? 100.0 : 0.0;
+        }
+        return current.subtract(previous)
+                .multiply(BigDecimal.valueOf(100))
+                .divide(previous.abs(), 1, RoundingMode.HALF_UP)
+                .doubleValue();
+    }
+
+    /**
+     * Doanh thu và số đơn theo từng kỳ (day / week bắt đầu thứ Hai / month) trong khoảng [from, to], kỳ trống trả về 0.
+     */
+    public List<Map<String, Object>> getSeries(String period, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Ngày bắt đầu phải trước ngày kết thúc");
+        }
+        Map<LocalDate, BigDecimal> revenue = new LinkedHashMap<>();
+        Map<LocalDate, Long> orders = new HashMap<>();
+        for (LocalDate start = bucketStart(period, from); !start.isAfter(to); start = nextBucket(period, start)) {
+            if (revenue.size() >= MAX_BUCKETS) {
+                throw new IllegalArgumentException("Khoảng thời gian quá lớn, tối đa " + MAX_BUCKETS + " kỳ");
+            }
+            revenue.put(start, BigDecimal.ZERO);
+            orders.put(start, 0L);
+        }
+        for (RevenueDaily row : revenueDailyRepository.findRange(from, to)) {
+            LocalDate bucket = bucketStart(period, row.getSalesDate());
+            revenue.merge(bucket, row.getRevenue(), BigDecimal::add);
+            orders.merge(bucket, row.getOrdersCount(), Long::sum);
+        }
+        List<Map<String, Object>> series = new ArrayList<>(revenue.size());
+        revenue.forEach((start, amount) -> {
+            Map<String, Object> point = new HashMap<>();
+            point.put("period", start.toString());
+            point.put("revenue", amount);
+            point.put("orders", orders.get(start));
+            series.add(point);
+        });
+        return series;
+    }
+
+    private void apply(Long orderId) {
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            return;
+        }
+        Instant deliveredAt = order.getDeliveryDate() != null ? order.getDeliveryDate() : order.getBookingDate();
+        LocalDate salesDate = deliveredAt != null
+                ? deliveredAt.atZone(appZoneId).toLocalDate()
+                : LocalDate.now(appZoneId);
+        BigDecimal totalMoney = order.getTotalMoney() != null ? order.getTotalMoney() : BigDecimal.ZERO;
+        revenueDailyRepository.add(salesDate, totalMoney, 1);
+    }
+
+    private static int windowDays(String period) {
+        return switch (normalize(period)) {
+            case "day" -> 1;
+            case "week" -> 7;
+            default -> 30;
+        };
+    }
+
+    private static LocalDate bucketStart(String period, LocalDate date) {
+        return switch (normalize(period)) {
+            case "week" -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case "month" -> date.withDayOfMonth(1);
+            default -> date;
+        };
+    }
+
+    private static LocalDate nextBucket(String period, LocalDate start) {
+        return switch (normalize(period)) {
+            case "week" -> start.plusWeeks(1);
+            case "month" -> start.plusMonths(1);
+            default -> start.plusDays(1);
+        };
+    }
+
+    private static String normalize(String period) {
+        if (period == null) {
+            return "month";
+        }
+        String value = period.toLowerCase();
+        if (!value.equals("day") && !value.equals("week") && !value.equals("month")) {
+            throw new IllegalArgumentException("Kỳ không hợp lệ: " + period);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,180 @@
+package org.example.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.backend.dto.ProductUnitsRow;
+import org.example.backend.entity.Order;
+import org.example.backend.entity.ProductSales;
+import org.example.backend.enums.OrderStatus;
+import org.example.backend.event.OrderPlacedEvent;
+import org.example.backend.event.OrderStatusChangedEvent;
+import org.example.backend.repository.OrderDetailRepository;
+import org.example.backend.repository.OrderRepository;
+import org.example.backend.repository.ProcessedOrderEventRepository;
+import org.example.backend.repository.ProductSalesDailyRepository;
+import org.example.backend.repository.ProductSalesRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Bảng xếp hạng sản phẩm bán chạy được duy trì tăng dần: bộ đếm số lượng đã bán theo sản phẩm
+ * (bảng product_sales, product_sales_daily) và một tập sắp xếp trong bộ nhớ để đọc top-K với chi phí O(K).
+ * Mỗi sự kiện chỉ được cộng một lần: dấu processed_order_event được ghi cùng transaction với phần cộng dồn.
+ */
+@Service
+@RequiredArgsConstructor
+public class SalesRankService {
+    private static final Logger logger = LoggerFactory.getLogger(SalesRankService.class);
+    private static final Set<OrderStatus> UNCOUNTED_STATUSES = EnumSet.of(OrderStatus.CANCELLED, OrderStatus.REFUSED);
+    private static final String CONSUMER = "sales-rank";
+    private static final String PLACED = "PLACED";
+    private static final String UNCOUNTED = "UNCOUNTED";
+
+    private final ProductSalesRepository productSalesRepository;
+    private final ProductSalesDailyRepository productSalesDailyRepository;
+    private final OrderDetailRepository orderDetailRepository;
+    private final OrderRepository orderRepository;
+    private final ProcessedOrderEventRepository processedOrderEventRepository;
+    private final ZoneId appZoneId;
+
+    private final Map<Long, RankEntry> entries = new HashMap<>();
+    private final NavigableSet<RankEntry> ranking = new TreeSet<>();
+    private final Map<Long, NavigableSet<RankEntry>> rankingByCategory = new HashMap<>();
+
+    private record RankEntry(Long productId, Long categoryId, long units) implements Comparable<RankEntry> {
+        @Override
+        public int compareTo(RankEntry other) {
+            int byUnits = Long.compare(other.units, units);
+            return byUnits != 0 ? byUnits : productId.compareTo(other.productId);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (productSalesRepository.count() == 0) {
+            int products = productSalesRepository.backfill();
+            int buckets = productSalesDailyRepository.backfill();
+            // Các đơn đã có trong lịch sử được coi là đã cộng/trừ, sự kiện giao lại sau đó sẽ bị bỏ qua
+            processedOrderEventRepository.deleteByConsumer(CONSUMER);
+            processedOrderEventRepository.markAllProcessed(CONSUMER, PLACED, Arrays.stream(OrderStatus.values()).map(Enum::name).toList());
+            processedOrderEventRepository.markAllProcessed(CONSUMER, UNCOUNTED, UNCOUNTED_STATUSES.stream().map(Enum::name).toList());
+            logger.info("Đã dựng bảng số lượng bán từ lịch sử đơn hàng: {} sản phẩm, {} bản ghi theo ngày", products, buckets);
+        }
+        synchronized (this) {
+            entries.clear();
+            ranking.clear();
+            rankingByCategory.clear();
+            for (ProductSales sales : productSalesRepository.findAll()) {
+                put(new RankEntry(sales.getProductId(), sales.getCategoryId(), sales.getUnitsSold()));
+            }
+        }
+    }
+
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        apply(event.getOrderId(), PLACED, 1);
+    }
+
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        boolean wasCounted = !UNCOUNTED_STATUSES.contains(event.getPreviousStatus());
+        boolean isCounted = !UNCOUNTED_STATUSES.contains(event.getNewStatus());
+        if (wasCounted && !isCounted) {
+            apply(event.getOrderId(), UNCOUNTED, -1);
+        } else if (!wasCounted && isCounted) {
+            // Đơn hủy được khôi phục khi thanh toán tới muộn (OrderService.confirmOnlinePayment)
+            apply(event.getOrderId(), UNCOUNTED, 1);
+        }
+    }
+
+    /**
+     * Top sản phẩm bán chạy nhất mọi thời điểm, hoặc trong {@code days} ngày gần nhất nếu days khác null.
+     * categoryId null nghĩa là tất cả danh mục.
+     */
+    public List<Long> getTopProductIds(int size, Long categoryId, Integer days) {
+        if (days != null) {
+            LocalDate from = LocalDate.now(appZoneId).minusDays(days - 1L);
+            return productSalesDailyRepository.findTopProductIdsSince(from, categoryId, PageRequest.of(0, size));
+        }
+        List<Long> result = new ArrayList<>(size);
+        synchronized (this) {
+            NavigableSet<RankEntry> source = categoryId == null
+                    ? ranking
+                    : rankingByCategory.getOrDefault(categoryId, Collections.emptyNavigableSet());
+            for (RankEntry entry : source) {
+                if (result.size() == size || entry.units() <= 0) {
+                    break;
+                }
+                result.add(entry.productId());
+            }
+        }
+        return result;
+    }
+
+    private void apply(Long orderId, String event, int sign) {
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            return;
+        }
+        // Dấu UNCOUNTED tồn tại khi đơn đang không được tính: trừ thì thêm dấu, khôi phục thì xóa dấu
+        int marked = UNCOUNTED.equals(event) && sign > 0
+                ? processedOrderEventRepository.unmarkProcessed(CONSUMER, orderId, event)
+                : processedOrderEventRepository.markProcessed(CONSUMER, orderId, event);
+        if (marked == 0) {
+            logger.info("Bỏ qua sự kiện {} lặp lại của đơn hàng {}", event, orderId);
+            return;
+        }
+        LocalDate salesDate = order.getBookingDate() != null
+                ? order.getBookingDate().atZone(appZoneId).toLocalDate()
+                : LocalDate.now(appZoneId);
+        List<ProductUnitsRow> rows = orderDetailRepository.findProductUnitsByOrderId(orderId);
+        for (ProductUnitsRow row : rows) {
+            long delta = sign * row.getUnits();
+            productSalesRepository.addUnits(row.getProductId(), row.getCategoryId(), delta);
+            productSalesDailyRepository.addUnits(row.getProductId(), row.getCategoryId(), salesDate, delta);
+        }
+        // Bảng xếp hạng trong bộ nhớ chỉ đổi khi phần cộng dồn đã commit
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                synchronized (SalesRankService.this) {
+                    for (ProductUnitsRow row : rows) {
+                        RankEntry previous = entries.get(row.getProductId());
+                        long units = (previous != null ? previous.units() : 0) + sign * row.getUnits();
+                        put(new RankEntry(row.getProductId(), row.getCategoryId(), units));
+                    }
+                }
+            }
+        });
+    }
+
+    private void put(RankEntry entry) {
+        RankEntry previous = entries.put(entry.productId(), entry);
+        if (previous != null) {
+            ranking.remove(previous);
+            NavigableSet<RankEntry> previousCategory = rankingByCategory.get(previous.categoryId());
+            if (previousCategory != null) {
+                previousCategory.remove(previous);
+            }
+        }
+        ranking.add(entry);
+        rankingByCategory.computeIfAbsent(entry.categoryId(), k -> new TreeSet<>()).add(entry);
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.backend.dto.CategorySalesRow;
+import org.example.backend.entity.Order;
+import org.example.backend.enums.OrderStatus;
+import org.example.backend.event.OrderStatusChangedEvent;
+import org.example.backend.repository.OrderDetailRepository;
+import org.example.backend.repository.OrderRepository;
+import org.example.backend.repository.ProcessedOrderEventRepository;
+import org.example.backend.repository.SalesRollupDailyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bảng tổng hợp doanh số (ngày giao × danh mục) cho dashboard admin. Được cộng trong cùng transaction
+ * với việc đơn chuyển sang DELIVERED, đúng một lần cho mỗi đơn, nên luôn khớp với dữ liệu đơn hàng.
+ * Ngày giao được cắt theo app.zone-id, giống câu backfill.
+ */
+@Service
+@RequiredArgsConstructor
+public class SalesRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+    private static final String CONSUMER = "sales-rollup";
+    private static final String DELIVERED_EVENT = "DELIVERED";
+
+    private final SalesRollupDailyRepository salesRollupDailyRepository;
+    private final OrderDetailRepository orderDetailRepository;
+    private final OrderRepository orderRepository;
+    private final ProcessedOrderEventRepository processedOrderEventRepository;
+    private final ZoneId appZoneId;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (salesRollupDailyRepository.count() == 0) {
+            int rows = backfill();
+            logger.info("Đã dựng bảng tổng hợp doanh số từ lịch sử đơn hàng: {} bản ghi", rows);
+        }
+    }
+
+    /**
+     * Xóa và dựng lại toàn bộ bảng tổng hợp từ lịch sử đơn hàng (một lần quét set-based).
+     */
+    @Transactional
+    public int rebuild() {
+        salesRollupDailyRepository.deleteAllRows();
+        int rows = backfill();
+        logger.info("Đã dựng lại bảng tổng hợp doanh số: {} bản ghi", rows);
+        return rows;
+    }
+
+    // Dựng từ lịch sử đơn hàng và đánh dấu mọi đơn DELIVERED là đã cộng, để sự kiện đến sau không cộng lại
+    private int backfill() {
+        processedOrderEventRepository.deleteByConsumer(CONSUMER);
+        processedOrderEventRepository.markAllProcessed(CONSUMER, DELIVERED_EVENT, List.of(DELIVERED_EVENT));
+        return salesRollupDailyRepository.backfill();
+    }
+
+    /**
+     * Mỗi đơn chỉ được cộng một lần: marker (consumer, đơn, DELIVERED) ghi bằng INSERT IGNORE trong cùng transaction,
+     * transaction thứ hai chuyển cùng đơn sang DELIVERED sẽ chờ khóa duy nhất rồi nhận 0 và bỏ qua.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.getNewStatus() == OrderStatus.DELIVERED && event.getPreviousStatus() != OrderStatus.DELIVERED
+                && processedOrderEventRepository.markProcessed(CONSUMER, event.getOrderId(), DELIVERED_EVENT) == 1) {
+            apply(event.getOrderId());
+        }
+    }
+
+    public Map<String, BigDecimal> getSalesByCategory() {
+        Map<String, BigDecimal> salesByCategory = new LinkedHashMap<>();
+        for (CategorySalesRow row : salesRollupDailyRepository.sumByCategory()) {
+            salesByCategory.put(row.getCategoryName(), row.getRevenue());
+        }
+        return salesByCategory;
+    }
+
+    private void apply(Long orderId) {
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            return;
+        }
+        Instant deliveredAt = order.getDeliveryDate() != null ? order.getDeliveryDate() : order.getBookingDate();
+        LocalDate salesDate = deliveredAt != null
+                ? deliveredAt.atZone(appZoneId).toLocalDate()
+                : LocalDate.now(appZoneId);
+        for (CategorySalesRow row : orderDetailRepository.findCategorySalesByOrderId(orderId)) {
+            BigDecimal revenue = row.getRevenue() != null ? row.getRevenue() : BigDecimal.ZERO;
+            salesRollupDailyRepository.add(salesDate, row.getCategoryId(),
+                    revenue, row.getUnits());
+        }
+    }
+}
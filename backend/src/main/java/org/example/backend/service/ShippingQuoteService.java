@@ -0,0 +1,206 @@
+package org.example.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.backend.dto.ShippingFeeRequest;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Báo giá phí vận chuyển GHTK có bộ nhớ đệm theo (tỉnh, quận, phường, bậc khối lượng, bậc giá trị hàng).
+ * Bậc chỉ dùng làm khóa: GHTK luôn được hỏi với địa chỉ, khối lượng và giá trị thật của yêu cầu gây ra lần gọi.
+ * Quá shipping.quote.fresh-ttl thì vẫn trả giá cũ và làm mới ở nền (stale-while-revalidate) cho tới
+ * shipping.quote.max-stale; nhiều yêu cầu cùng key khi chưa có trong bộ nhớ đệm chỉ gọi GHTK một lần.
+ * Số liệu hit/miss có tại /actuator/metrics/cache.* (cache=shippingQuote).
+ */
+@Service
+public class ShippingQuoteService {
+    private static final Logger logger = LoggerFactory.getLogger(ShippingQuoteService.class);
+    private static final int MAX_RETRIES = 3;
+
+    private final String ghtkApiUrl;
+    private final String ghtkToken;
+    private final String shopProvince;
+    private final String shopDistrict;
+    private final String shopWard;
+    private final String shopStreet;
+    private final int weightStep;
+    private final int valueStep;
+    private final long freshTtlNanos;
+    private final HttpClient httpClient;
+    private final Cache<QuoteKey, Quote> quotes;
+    // Các key đang được làm mới ở nền, tránh gọi GHTK nhiều lần cho cùng một key
+    private final Set<QuoteKey> refreshing = ConcurrentHashMap.newKeySet();
+
+    public ShippingQuoteService(@Value("${ghtk.api.url:https://services.giaohangtietkiem.vn/services/shipment/fee}") String ghtkApiUrl,
+                                @Value("${ghtk.api.token}") String ghtkToken,
+                                @Value("${ghtk.shop.province}") String shopProvince,
+                                @Value("${ghtk.shop.district}") String shopDistrict,
+                                @Value("${ghtk.shop.ward}") String shopWard,
+                                @Value("${ghtk.shop.street}") String shopStreet,
+                                @Value("${shipping.quote.weight-step:500}") int weightStep,
+                                @Value("${shipping.quote.value-step:100000}") int valueStep,
+                                @Value("${shipping.quote.max-entries:10000}") long maxEntries,
+                                @Value("${shipping.quote.fresh-ttl:PT30M}") Duration freshTtl,
+                                @Value("${shipping.quote.max-stale:PT6H}") Duration maxStale,
+                                MeterRegistry meterRegistry) {
+        this.ghtkApiUrl = ghtkApiUrl;
+        this.ghtkToken = ghtkToken;
+        this.shopProvince = shopProvince;
+        this.shopDistrict = shopDistrict;
+        this.shopWard = shopWard;
+        this.shopStreet = shopStreet;
+        this.weightStep = weightStep;
+        this.valueStep = valueStep;
+        this.freshTtlNanos = freshTtl.toNanos();
+        this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        this.quotes = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(maxStale)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, quotes, "shippingQuote");
+    }
+
+    /**
+     * Khóa bộ nhớ đệm: địa chỉ đã chuẩn hóa, khối lượng và giá trị hàng làm tròn lên theo bậc.
+     */
+    private record QuoteKey(String province, String district, String ward, int weight, int value) {
+    }
+
+    private record Quote(double fee, long fetchedAt) {
+    }
+
+    /**
+     * Phí vận chuyển (VND). Ném IllegalArgumentException nếu GHTK từ chối địa chỉ / tham số,
+     * IllegalStateException nếu không gọi được GHTK.
+     */
+    public double getFee(ShippingFeeRequest request) {
+        QuoteKey key = new QuoteKey(
+                normalizeAddressField(request.getCity()),
+                normalizeAddressField(request.getDistrict()),
+                normalizeAddressField(request.getWard()),
+                roundUp(request.getWeight(), weightStep),
+                roundUp(request.getValue(), valueStep));
+        Quote quote = quotes.get(key, k -> new Quote(fetchFee(request), System.nanoTime()));
+        if (System.nanoTime() - quote.fetchedAt() > freshTtlNanos && refreshing.add(key)) {
+            CompletableFuture.runAsync(() -> refresh(key, request));
+        }
+        return quote.fee();
+    }
+
+    private void refresh(QuoteKey key, ShippingFeeRequest request) {
+        try {
+            quotes.put(key, new Quote(fetchFee(request), System.nanoTime()));
+        } catch (RuntimeException e) {
+            // Giữ giá cũ tới khi hết shipping.quote.max-stale, lần truy cập sau sẽ thử lại
+            logger.warn("Không làm mới được phí vận chuyển cho {}: {}", key, e.getMessage());
+        } finally {
+            refreshing.remove(key);
+        }
+    }
+
+    private double fetchFee(ShippingFeeRequest request) {
+        JSONObject json = new JSONObject();
+        json.put("pick_province", shopProvince);
+        json.put("pick_district", shopDistrict);
+        json.put("pick_ward", shopWard);
+        json.put("pick_street", shopStreet);
+        json.put("province", normalizeAddressField(request.getCity()));
+        json.put("district", normalizeAddressField(request.getDistrict()));
+        json.put("ward", normalizeAddressField(request.getWard()));
+        json.put("address", request.getAddress());
+        json.put("weight", request.getWeight());
+        json.put("value", request.getValue());
+        json.put("transport_type", "road");
+
+        HttpResponse<String> response = send(json);
+        if (response.statusCode() != 200) {
+            logger.warn("GHTK API returned status: {}", response.statusCode());
+            throw new IllegalStateException("Mã trạng thái: " + response.statusCode() + ", Body: " + response.body());
+        }
+        JSONObject body = new JSONObject(response.body());
+        if (!body.optBoolean("success")) {
+            String errorMessage = body.optString("message", "Lỗi không xác định từ GHTK");
+            logger.warn("GHTK API error: {}", errorMessage);
+            throw new IllegalArgumentException(errorMessage);
+        }
+        return body.getJSONObject("fee").getDouble("fee");
+    }
+
+    private HttpResponse<String> send(JSONObject payload) {
+        HttpRequest httpRequest = HttpRequest.newBuilder()
+                .uri(URI.create(ghtkApiUrl))
+                .timeout(Duration.ofSeconds(10))
+                .header("Token", ghtkToken)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(payload.toString(), StandardCharsets.UTF_8))
+                .build();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
+                if (attempt == MAX_RETRIES) {
+                    throw new IllegalStateException("Không thể kết nối GHTK API sau " + MAX_RETRIES + " lần thử: " + e.getMessage(), e);
+                }
+                sleepBeforeRetry();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Bị gián đoạn khi gọi GHTK API", e);
+            }
+        }
+    }
+
+    private static void sleepBeforeRetry() {
+        try {
+            Thread.sleep(1000); // Chờ 1 giây trước khi thử lại
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bị gián đoạn khi chờ gọi lại GHTK API", e);
+        }
+    }
+
+    private static int roundUp(int amount, int step) {
+        if (step <= 1) {
+            return amount;
+        }
+        return (amount + step - 1) / step * step;
+    }
+
+    /**
+     * Chuẩn hóa trường địa chỉ để khớp với định dạng GHTK (ví dụ: thêm tiền tố TP).
+     */
+    private static String normalizeAddressField(String field) {
+        if (field == null) return null;
+        field = field.trim().replaceAll("\\s+", " ");
+        if (field.equalsIgnoreCase("Hà Nội") || field.equalsIgnoreCase("TP Hà Nội")) {
+            return "TP Hà Nội";
+        }
+        if (field.equalsIgnoreCase("Hồ Chí Minh") || field.equalsIgnoreCase("TP Hồ Chí Minh")) {
+            return "TP Hồ Chí Minh";
+        }
+        if (field.startsWith("Phường ")) {
+            return field.replace("Phường ", "");
+        }
+        if (field.startsWith("Quận ")) {
+            return field.replace("Quận ", "");
+        }
+        return field;
+    }
+}
@@ -125,7 +125,7 @@ public class SocialAuthService {
                     User user = new User();
                     user.setEmail(email);
                     user.setUsername(name);
-                    user.setPhone("");
+                    user.setPhone(null);
                     user.setPassword("");
                     user.setRole(role);
                     user.setTokenVersion(jwtService.generateTokenVersion());
@@ -0,0 +1,92 @@
+package org.example.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Trừ / hoàn tồn kho bằng các câu UPDATE có điều kiện, gửi theo lô trong transaction của đơn hàng.
+ * Các dòng luôn được cập nhật theo thứ tự id variant tăng dần để các đơn đồng thời khóa hàng
+ * theo cùng một thứ tự (tránh deadlock); điều kiện quantity >= ? bảo đảm không bán vượt tồn kho.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockService {
+    private static final String DECREMENT_SQL = "UPDATE productvariant SET quantity = quantity - ? WHERE id = ? AND quantity >= ?";
+    private static final String INCREMENT_SQL = "UPDATE productvariant SET quantity = quantity + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Trừ tồn kho cho tất cả các dòng của một đơn hàng (variantId -> số lượng). Nếu một variant không đủ hàng
+     * thì ném IllegalStateException và toàn bộ transaction (kể cả các dòng đã trừ) được rollback.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void decrement(Map<Long, Integer> quantities) {
+        Map<Long, Integer> ordered = new TreeMap<>(quantities);
+        List<Object[]> batch = new ArrayList<>(ordered.size());
+        List<Long> variantIds = new ArrayList<>(ordered.size());
+        ordered.forEach((variantId, quantity) -> {
+            if (quantity == null || quantity <= 0) {
+                throw new IllegalArgumentException("Số lượng không hợp lệ cho product variant: " + variantId);
+            }
+            batch.add(new Object[]{quantity, variantId, quantity});
+            variantIds.add(variantId);
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_SQL, batch);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] != 1) {
+                throw new IllegalStateException("Insufficient stock for product variant: " + variantIds.get(i));
+            }
+        }
+    }
+
+    /**
+     * Như {@link #decrement} nhưng không ném lỗi khi thiếu hàng: các dòng đã trừ được cộng lại và trả về false,
+     * để transaction hiện tại vẫn commit được phần còn lại (ví dụ đánh dấu đơn cần hoàn tiền).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean tryDecrement(Map<Long, Integer> quantities) {
+        List<Object[]> batch = new ArrayList<>(quantities.size());
+        new TreeMap<>(quantities).forEach((variantId, quantity) -> batch.add(new Object[]{quantity, variantId, quantity}));
+        if (batch.isEmpty()) {
+            return true;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_SQL, batch);
+        List<Object[]> undo = new ArrayList<>(batch.size());
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 1) {
+                undo.add(new Object[]{batch.get(i)[0], batch.get(i)[1]});
+            }
+        }
+        if (undo.size() == batch.size()) {
+            return true;
+        }
+        if (!undo.isEmpty()) {
+            jdbcTemplate.batchUpdate(INCREMENT_SQL, undo);
+        }
+        return false;
+    }
+
+    /**
+     * Hoàn lại tồn kho (variantId -> số lượng), ví dụ khi giữ hàng hết hạn.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void increment(Map<Long, Integer> quantities) {
+        List<Object[]> batch = new ArrayList<>(quantities.size());
+        new TreeMap<>(quantities).forEach((variantId, quantity) -> batch.add(new Object[]{quantity, variantId}));
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INCREMENT_SQL, batch);
+        }
+    }
+}
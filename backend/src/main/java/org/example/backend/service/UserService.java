@@ -119,6 +119,14 @@ public class UserService {
             throw new IllegalArgumentException("Email đã tồn tại");
         }
 
+        // Kiểm tra trùng số điện thoại
+        if (updateUserDTO.getPhone() != null && !updateUserDTO.getPhone().isBlank()
+                && !updateUserDTO.getPhone().equals(user.getPhone())
+                && userRepository.findByPhone(updateUserDTO.getPhone()).isPresent()) {
+            logger.warn("Số điện thoại {} đã tồn tại", updateUserDTO.getPhone());
+            throw new IllegalArgumentException("Số điện thoại đã tồn tại");
+        }
+
         // Cập nhật thông tin người dùng
         user.setUsername(updateUserDTO.getUsername());
         user.setEmail(updateUserDTO.getEmail());
@@ -0,0 +1,140 @@
+package org.example.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.example.backend.config.VNPayCodec;
+import org.example.backend.entity.Order;
+import org.example.backend.enums.PaymentConfirmation;
+import org.example.backend.repository.OrderRepository;
+import org.example.backend.repository.VNPayNotificationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Xử lý IPN (server-to-server) của VNPay. Các lần gửi lại được loại bỏ rẻ nhất có thể: trước hết qua tập
+ * vnp_TxnRef đã xử lý trong bộ nhớ, sau đó qua khóa duy nhất của bảng vnpay_notification (02); lần gửi trùng
+ * với một lần đang xử lý trên cùng instance nhận 99 để VNPay gửi lại sau;
+ * việc chuyển trạng thái đơn dùng một câu UPDATE có điều kiện (confirmOnlinePayment / expirePendingOrder)
+ * và được ghi cùng transaction với bản ghi IPN.
+ */
+@Service
+public class VNPayIpnService {
+    private static final Logger logger = LoggerFactory.getLogger(VNPayIpnService.class);
+
+    private final VNPayCodec vnpayCodec;
+    private final VNPayNotificationRepository vnpayNotificationRepository;
+    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<Long, Boolean> settled;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public VNPayIpnService(VNPayCodec vnpayCodec,
+                           VNPayNotificationRepository vnpayNotificationRepository,
+                           OrderRepository orderRepository,
+                           OrderService orderService,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${vnpay.ipn.settled-cache-size:100000}") long settledCacheSize) {
+        this.vnpayCodec = vnpayCodec;
+        this.vnpayNotificationRepository = vnpayNotificationRepository;
+        this.orderRepository = orderRepository;
+        this.orderService = orderService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.settled = Caffeine.newBuilder().maximumSize(settledCacheSize).build();
+    }
+
+    /**
+     * Trả về phản hồi theo định dạng VNPay yêu cầu ({RspCode, Message}); VNPay chỉ ngừng gửi lại khi nhận 00 hoặc 02.
+     */
+    public Map<String, String> handle(Map<String, String> fields) {
+        if (!vnpayCodec.verify(fields)) {
+            return response("97", "Invalid signature");
+        }
+        Long txnRef = parseLong(fields.get("vnp_TxnRef"));
+        if (txnRef == null) {
+            return response("01", "Order not found");
+        }
+        if (settled.getIfPresent(txnRef) != null) {
+            return response("02", "Order already confirmed");
+        }
+        if (!inFlight.add(txnRef)) {
+            // Lần gửi đầu chưa commit và có thể còn thất bại: yêu cầu VNPay gửi lại thay vì báo đã xác nhận
+            return response("99", "Transaction is being processed");
+        }
+        try {
+            return process(txnRef, fields);
+        } catch (RuntimeException e) {
+            logger.error("Lỗi khi xử lý IPN VNPay cho vnp_TxnRef {}: {}", txnRef, e.getMessage());
+            return response("99", "Unknown error");
+        } finally {
+            inFlight.remove(txnRef);
+        }
+    }
+
+    private Map<String, String> process(Long txnRef, Map<String, String> fields) {
+        Optional<Order> found = orderRepository.findByVnpTxnRef(txnRef);
+        if (found.isEmpty()) {
+            return response("01", "Order not found");
+        }
+        Order order = found.get();
+        Long amount = parseLong(fields.get("vnp_Amount"));
+        BigDecimal totalMoney = order.getTotalMoney() != null ? order.getTotalMoney() : BigDecimal.ZERO;
+        if (amount == null || totalMoney.multiply(BigDecimal.valueOf(100)).compareTo(BigDecimal.valueOf(amount)) != 0) {
+            return response("04", "Invalid amount");
+        }
+
+        // Ghi nhận IPN và chuyển trạng thái đơn trong cùng một transaction: lỗi ở bước nào thì cả hai cùng rollback
+        // và VNPay được phép gửi lại
+        Map<String, String> result = transactionTemplate.execute(status -> {
+            if (vnpayNotificationRepository.insertIfAbsent(txnRef, order.getId(), fields.get("vnp_ResponseCode"),
+                    fields.get("vnp_TransactionNo"), Instant.now()) == 0) {
+                // Instance khác đã ghi nhận IPN này
+                return response("02", "Order already confirmed");
+            }
+            boolean paid = "00".equals(fields.get("vnp_ResponseCode")) && "00".equals(fields.get("vnp_TransactionStatus"));
+            if (paid) {
+                return response(orderService.confirmOnlinePayment(order.getId()));
+            }
+            return orderService.expirePendingOrder(order.getId())
+                    ? response("00", "Confirm Success")
+                    : response("02", "Order already confirmed");
+        });
+        settled.put(txnRef, Boolean.TRUE);
+        logger.info("Đã xử lý IPN VNPay cho đơn hàng #{} (vnp_TxnRef {}, mã phản hồi {}): {}",
+                order.getId(), txnRef, fields.get("vnp_ResponseCode"), result.get("Message"));
+        return result;
+    }
+
+    // Thanh toán tới sau khi đơn bị hủy vẫn được ghi nhận (00) để VNPay ngừng gửi lại; đơn được đánh dấu cần hoàn tiền
+    private static Map<String, String> response(PaymentConfirmation confirmation) {
+        return switch (confirmation) {
+            case CONFIRMED -> response("00", "Confirm Success");
+            case REVIVED -> response("00", "Confirm Success - order restored");
+            case ALREADY_CONFIRMED -> response("02", "Order already confirmed");
+            case REFUND_REQUIRED -> response("00", "Payment recorded - order cancelled, refund pending");
+        };
+    }
+
+    private static Long parseLong(String value) {
+        try {
+            return value != null ? Long.parseLong(value) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, String> response(String code, String message) {
+        return Map.of("RspCode", code, "Message", message);
+    }
+}
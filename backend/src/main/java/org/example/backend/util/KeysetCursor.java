@@ -0,0 +1,36 @@
+package org.example.backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Con trỏ phân trang keyset dạng chuỗi mờ (opaque): mã hóa giá trị khóa sắp xếp
+ * của bản ghi cuối trang cùng với id để trang sau là một lần quét khoảng trên chỉ mục.
+ * Chuỗi rỗng nghĩa là bắt đầu từ đầu danh sách.
+ */
+public record KeysetCursor(String key, Long id) {
+    private static final char SEPARATOR = '|';
+
+    public boolean isStart() {
+        return id == null;
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return new KeysetCursor(null, null);
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            String key = raw.substring(0, separator);
+            return new KeysetCursor(key.isEmpty() ? null : key, Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Con trỏ phân trang không hợp lệ");
+        }
+    }
+
+    public static String encode(Object key, Long id) {
+        String raw = (key != null ? key.toString() : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
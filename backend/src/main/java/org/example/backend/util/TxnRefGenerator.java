@@ -0,0 +1,61 @@
+package org.example.backend.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sinh mã giao dịch (vnp_TxnRef) kiểu Snowflake: 41 bit thời gian (ms từ 2024-01-01) | 10 bit node | 12 bit thứ tự.
+ * Không khóa trong một node (CAS trên AtomicLong), tăng dần nên index vnp_txn_ref chỉ ghi nối vào cuối,
+ * và không trùng giữa các node miễn là mỗi node có txn-ref.node-id khác nhau.
+ * Ngoài profile dev/test, thiếu txn-ref.node-id (NODE_ID) thì dừng khởi động thay vì tự đoán node id.
+ */
+@Component
+public class TxnRefGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(TxnRefGenerator.class);
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    // (thời gian << SEQUENCE_BITS) | thứ tự của mã được cấp gần nhất
+    private final AtomicLong state = new AtomicLong();
+
+    public TxnRefGenerator(@Value("${txn-ref.node-id:-1}") long configuredNodeId, Environment environment) {
+        if (configuredNodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("txn-ref.node-id phải nằm trong khoảng 0.." + MAX_NODE_ID);
+        }
+        if (configuredNodeId >= 0) {
+            this.nodeId = configuredNodeId;
+        } else if (environment.acceptsProfiles(Profiles.of("dev", "test"))) {
+            logger.warn("Chưa cấu hình txn-ref.node-id, dùng node id 0 (chỉ dành cho một node dev/test)");
+            this.nodeId = 0;
+        } else {
+            throw new IllegalStateException("Chưa cấu hình txn-ref.node-id (biến môi trường NODE_ID); "
+                    + "mỗi node phải có một giá trị riêng trong khoảng 0.." + MAX_NODE_ID);
+        }
+        logger.info("Bộ sinh mã giao dịch dùng node id {}", nodeId);
+    }
+
+    public long nextId() {
+        while (true) {
+            long previous = state.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            // Cùng ms (hoặc đồng hồ bị lùi) thì tăng thứ tự; tràn 12 bit sẽ mượn sang ms kế tiếp nên vẫn tăng dần
+            long next = now > (previous >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : previous + 1;
+            if (state.compareAndSet(previous, next)) {
+                return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                        | (nodeId << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+}
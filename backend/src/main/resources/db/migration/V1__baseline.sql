@@ -0,0 +1,246 @@
+-- Lược đồ ban đầu, trùng với lược đồ do ddl-auto=update tạo ra trước khi chuyển sang Flyway.
+-- Cơ sở dữ liệu đã có sẵn được đánh dấu baseline ở phiên bản 1 (spring.flyway.baseline-on-migrate) và bỏ qua file này.
+-- Chỉ dùng cú pháp chạy được trên cả MySQL 8 và H2 (MODE=MySQL) của profile test.
+
+CREATE TABLE role
+(
+    id        BIGINT       NOT NULL,
+    role_name VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE user
+(
+    id            BIGINT       NOT NULL AUTO_INCREMENT,
+    username      VARCHAR(32)  NOT NULL,
+    password      VARCHAR(300) NOT NULL,
+    email         VARCHAR(255),
+    phone         VARCHAR(15),
+    role_id       BIGINT       NOT NULL,
+    failed        INT          NOT NULL DEFAULT 0,
+    locked        BIT          NOT NULL DEFAULT 0,
+    lock_time     DATETIME(6),
+    token_version VARCHAR(512),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_user_role FOREIGN KEY (role_id) REFERENCES role (id)
+);
+
+CREATE TABLE brand
+(
+    id   BIGINT NOT NULL,
+    name VARCHAR(100),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE category
+(
+    id   BIGINT NOT NULL,
+    name VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE discounttype
+(
+    id   BIGINT NOT NULL,
+    type VARCHAR(15),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE payment
+(
+    id          BIGINT NOT NULL,
+    method_name VARCHAR(50),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE images
+(
+    id        BIGINT NOT NULL AUTO_INCREMENT,
+    public_id LONGTEXT,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE product
+(
+    id          BIGINT       NOT NULL AUTO_INCREMENT,
+    name        VARCHAR(255) NOT NULL,
+    brand_id    BIGINT,
+    description LONGTEXT,
+    category_id BIGINT,
+    view_count  INT,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_product_brand FOREIGN KEY (brand_id) REFERENCES brand (id),
+    CONSTRAINT fk_product_category FOREIGN KEY (category_id) REFERENCES category (id)
+);
+
+CREATE TABLE productvariant
+(
+    id                BIGINT NOT NULL AUTO_INCREMENT,
+    product_id        BIGINT NOT NULL,
+    product_attribute VARCHAR(255),
+    variant           VARCHAR(100),
+    price             DECIMAL(38, 2),
+    quantity          INT    NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_productvariant_product FOREIGN KEY (product_id) REFERENCES product (id)
+);
+
+CREATE TABLE productimage
+(
+    id                 BIGINT NOT NULL AUTO_INCREMENT,
+    product_variant_id BIGINT NOT NULL,
+    main_image         BIT    NOT NULL,
+    image_id           BIGINT,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_productimage_variant FOREIGN KEY (product_variant_id) REFERENCES productvariant (id),
+    CONSTRAINT fk_productimage_image FOREIGN KEY (image_id) REFERENCES images (id)
+);
+
+CREATE TABLE cart
+(
+    id      BIGINT NOT NULL AUTO_INCREMENT,
+    user_id BIGINT,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE cartitem
+(
+    id                 BIGINT NOT NULL AUTO_INCREMENT,
+    cart_id            BIGINT,
+    product_variant_id BIGINT NOT NULL,
+    quantity           INT    NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_cartitem_cart FOREIGN KEY (cart_id) REFERENCES cart (id),
+    CONSTRAINT fk_cartitem_variant FOREIGN KEY (product_variant_id) REFERENCES productvariant (id)
+);
+
+CREATE TABLE voucher
+(
+    id                  BIGINT        NOT NULL AUTO_INCREMENT,
+    code                VARCHAR(50)   NOT NULL,
+    discount_type       BIGINT        NOT NULL,
+    discount_percentage DECIMAL(5, 2) NOT NULL,
+    product_variant_id  BIGINT,
+    category_id         BIGINT,
+    quantity            INT           NOT NULL,
+    start_date          DATE          NOT NULL,
+    end_date            DATE          NOT NULL,
+    minimum_order_value DOUBLE,
+    maximum_discount    DOUBLE,
+    is_active           BIT DEFAULT 1,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_voucher_discounttype FOREIGN KEY (discount_type) REFERENCES discounttype (id),
+    CONSTRAINT fk_voucher_variant FOREIGN KEY (product_variant_id) REFERENCES productvariant (id),
+    CONSTRAINT fk_voucher_category FOREIGN KEY (category_id) REFERENCES category (id)
+);
+
+CREATE TABLE evoucher
+(
+    id          BIGINT NOT NULL AUTO_INCREMENT,
+    user_id     BIGINT NOT NULL,
+    voucher_id  BIGINT NOT NULL,
+    usage_limit INT    NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_evoucher_user FOREIGN KEY (user_id) REFERENCES user (id),
+    CONSTRAINT fk_evoucher_voucher FOREIGN KEY (voucher_id) REFERENCES voucher (id)
+);
+
+CREATE TABLE orders
+(
+    id              BIGINT NOT NULL AUTO_INCREMENT,
+    booking_date    DATETIME(6),
+    delivery_date   DATETIME(6),
+    user_id         BIGINT,
+    consignee_name  VARCHAR(30),
+    consignee_phone VARCHAR(15),
+    ship            DECIMAL(15, 3),
+    discount_value  DECIMAL(15, 3),
+    total_money     DECIMAL(15, 3),
+    address         VARCHAR(255),
+    payment_id      BIGINT,
+    order_notes     VARCHAR(255),
+    order_status    VARCHAR(20),
+    vnp_txn_ref     BIGINT,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_orders_user FOREIGN KEY (user_id) REFERENCES user (id),
+    CONSTRAINT fk_orders_payment FOREIGN KEY (payment_id) REFERENCES payment (id)
+);
+
+CREATE TABLE orderdetails
+(
+    id                  BIGINT NOT NULL AUTO_INCREMENT,
+    order_id            BIGINT,
+    product_variant_id  BIGINT,
+    product_price       DECIMAL(10, 3),
+    quantity            INT    NOT NULL,
+    price_with_quantity DECIMAL(10, 3),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_orderdetails_order FOREIGN KEY (order_id) REFERENCES orders (id),
+    CONSTRAINT fk_orderdetails_variant FOREIGN KEY (product_variant_id) REFERENCES productvariant (id)
+);
+
+CREATE TABLE review
+(
+    id                    BIGINT   NOT NULL AUTO_INCREMENT,
+    commenter_name        VARCHAR(30),
+    phonenumber_commenter VARCHAR(15),
+    product_id            BIGINT,
+    rating                INT      NOT NULL,
+    comment               LONGTEXT NOT NULL,
+    date_created          DATETIME(6),
+    date_reply            DATETIME(6),
+    response              LONGTEXT,
+    is_accept             BIT,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_review_product FOREIGN KEY (product_id) REFERENCES product (id)
+);
+
+CREATE TABLE reviewimage
+(
+    id           BIGINT NOT NULL AUTO_INCREMENT,
+    img_asset_id VARCHAR(255),
+    review_id    BIGINT,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_reviewimage_review FOREIGN KEY (review_id) REFERENCES review (id)
+);
+
+CREATE TABLE wishlist_item
+(
+    id         BIGINT NOT NULL AUTO_INCREMENT,
+    user_id    BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_wishlist_item_user FOREIGN KEY (user_id) REFERENCES user (id),
+    CONSTRAINT fk_wishlist_item_product FOREIGN KEY (product_id) REFERENCES product (id)
+);
+
+CREATE TABLE password_reset_token
+(
+    id          BIGINT       NOT NULL AUTO_INCREMENT,
+    token       VARCHAR(255) NOT NULL,
+    user_id     BIGINT       NOT NULL,
+    expiry_date DATETIME(6)  NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_password_reset_token_token UNIQUE (token),
+    CONSTRAINT uk_password_reset_token_user UNIQUE (user_id),
+    CONSTRAINT fk_password_reset_token_user FOREIGN KEY (user_id) REFERENCES user (id)
+);
+
+CREATE TABLE log
+(
+    id             BIGINT NOT NULL AUTO_INCREMENT,
+    timestamp      DATETIME(6),
+    log_level      VARCHAR(30),
+    module         VARCHAR(50),
+    action_type    VARCHAR(50),
+    user_id        BIGINT,
+    log_content    VARCHAR(300),
+    source_ip      VARCHAR(45),
+    user_agent     VARCHAR(255),
+    affected_table VARCHAR(50),
+    before_data    LONGTEXT,
+    after_data     LONGTEXT,
+    nationality    LONGTEXT,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_log_user FOREIGN KEY (user_id) REFERENCES user (id)
+);
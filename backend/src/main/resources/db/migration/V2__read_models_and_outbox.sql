@@ -0,0 +1,99 @@
+-- Cột giá hiển thị của sản phẩm (ProductService điền giá trị cho các dòng NULL khi khởi động)
+ALTER TABLE product ADD COLUMN display_price DECIMAL(15, 3);
+
+-- Bảng xếp hạng bán chạy
+CREATE TABLE product_sales
+(
+    product_id  BIGINT NOT NULL,
+    category_id BIGINT,
+    units_sold  BIGINT NOT NULL,
+    PRIMARY KEY (product_id)
+);
+
+CREATE TABLE product_sales_daily
+(
+    id          BIGINT NOT NULL AUTO_INCREMENT,
+    product_id  BIGINT NOT NULL,
+    category_id BIGINT,
+    sales_date  DATE   NOT NULL,
+    units_sold  BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_product_sales_daily UNIQUE (product_id, sales_date)
+);
+CREATE INDEX idx_product_sales_daily_date ON product_sales_daily (sales_date);
+
+-- Tổng hợp doanh số cho dashboard admin
+CREATE TABLE sales_rollup_daily
+(
+    id          BIGINT         NOT NULL AUTO_INCREMENT,
+    sales_date  DATE           NOT NULL,
+    category_id BIGINT         NOT NULL,
+    revenue     DECIMAL(15, 3) NOT NULL,
+    units_sold  BIGINT         NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_sales_rollup_daily UNIQUE (sales_date, category_id)
+);
+
+CREATE TABLE revenue_daily
+(
+    sales_date   DATE           NOT NULL,
+    revenue      DECIMAL(15, 3) NOT NULL,
+    orders_count BIGINT         NOT NULL,
+    PRIMARY KEY (sales_date)
+);
+
+-- Giữ hàng cho đơn thanh toán online
+CREATE TABLE stock_reservation
+(
+    id                 BIGINT      NOT NULL AUTO_INCREMENT,
+    order_id           BIGINT      NOT NULL,
+    product_variant_id BIGINT      NOT NULL,
+    quantity           INT         NOT NULL,
+    expires_at         DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+CREATE INDEX idx_stock_reservation_expires_at ON stock_reservation (expires_at);
+CREATE INDEX idx_stock_reservation_order ON stock_reservation (order_id);
+
+-- Transactional outbox
+CREATE TABLE outbox_event
+(
+    id              BIGINT      NOT NULL AUTO_INCREMENT,
+    event_type      VARCHAR(50) NOT NULL,
+    aggregate_id    BIGINT      NOT NULL,
+    created_at      DATETIME(6) NOT NULL,
+    attempts        INT         NOT NULL,
+    next_attempt_at DATETIME(6) NOT NULL,
+    last_error      VARCHAR(500),
+    PRIMARY KEY (id)
+);
+CREATE INDEX idx_outbox_event_next_attempt ON outbox_event (next_attempt_at);
+
+-- Idempotency-Key cho tạo đơn / thanh toán
+CREATE TABLE idempotency_record
+(
+    id              BIGINT       NOT NULL AUTO_INCREMENT,
+    idem_key        VARCHAR(200) NOT NULL,
+    request_hash    VARCHAR(64)  NOT NULL,
+    completed       BIT          NOT NULL,
+    response_status INT,
+    response_body   TEXT,
+    created_at      DATETIME(6)  NOT NULL,
+    expires_at      DATETIME(6)  NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_idempotency_record_key UNIQUE (idem_key)
+);
+CREATE INDEX idx_idempotency_record_expires_at ON idempotency_record (expires_at);
+
+-- IPN VNPay đã xử lý
+CREATE TABLE vnpay_notification
+(
+    id             BIGINT      NOT NULL AUTO_INCREMENT,
+    vnp_txn_ref    BIGINT      NOT NULL,
+    order_id       BIGINT      NOT NULL,
+    response_code  VARCHAR(10),
+    transaction_no VARCHAR(50),
+    received_at    DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_vnpay_notification_txn_ref UNIQUE (vnp_txn_ref)
+);
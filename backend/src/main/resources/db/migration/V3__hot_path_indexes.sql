@@ -0,0 +1,70 @@
+-- Chỉ mục cho các truy vấn nóng. Các dòng trùng được gộp trước khi tạo ràng buộc duy nhất.
+-- Dùng bảng tạm vì MySQL không cho UPDATE/DELETE đọc lại chính bảng đích trong subquery; cú pháp chạy được cả trên H2.
+
+-- cartitem: gộp số lượng của các dòng cùng (cart_id, product_variant_id) vào dòng có id nhỏ nhất
+CREATE TABLE cartitem_merge AS
+SELECT MIN(id) AS keep_id, cart_id, product_variant_id, SUM(quantity) AS total_quantity
+FROM cartitem
+GROUP BY cart_id, product_variant_id
+HAVING COUNT(*) > 1;
+
+UPDATE cartitem
+SET quantity = (SELECT m.total_quantity FROM cartitem_merge m WHERE m.keep_id = cartitem.id)
+WHERE id IN (SELECT keep_id FROM cartitem_merge);
+
+DELETE FROM cartitem
+WHERE EXISTS (SELECT 1 FROM cartitem_merge m
+              WHERE m.cart_id = cartitem.cart_id AND m.product_variant_id = cartitem.product_variant_id
+                AND m.keep_id <> cartitem.id);
+
+DROP TABLE cartitem_merge;
+
+ALTER TABLE cartitem ADD CONSTRAINT uk_cartitem_cart_variant UNIQUE (cart_id, product_variant_id);
+
+-- wishlist_item: mỗi sản phẩm chỉ một lần trong danh sách yêu thích của một người dùng
+CREATE TABLE wishlist_item_merge AS
+SELECT MIN(id) AS keep_id, user_id, product_id
+FROM wishlist_item
+GROUP BY user_id, product_id
+HAVING COUNT(*) > 1;
+
+DELETE FROM wishlist_item
+WHERE EXISTS (SELECT 1 FROM wishlist_item_merge m
+              WHERE m.user_id = wishlist_item.user_id AND m.product_id = wishlist_item.product_id
+                AND m.keep_id <> wishlist_item.id);
+
+DROP TABLE wishlist_item_merge;
+
+ALTER TABLE wishlist_item ADD CONSTRAINT uk_wishlist_item_user_product UNIQUE (user_id, product_id);
+
+-- evoucher: gộp số lượt dùng còn lại của các dòng cùng (user_id, voucher_id)
+CREATE TABLE evoucher_merge AS
+SELECT MIN(id) AS keep_id, user_id, voucher_id, SUM(usage_limit) AS total_usage
+FROM evoucher
+GROUP BY user_id, voucher_id
+HAVING COUNT(*) > 1;
+
+UPDATE evoucher
+SET usage_limit = (SELECT m.total_usage FROM evoucher_merge m WHERE m.keep_id = evoucher.id)
+WHERE id IN (SELECT keep_id FROM evoucher_merge);
+
+DELETE FROM evoucher
+WHERE EXISTS (SELECT 1 FROM evoucher_merge m
+              WHERE m.user_id = evoucher.user_id AND m.voucher_id = evoucher.voucher_id
+                AND m.keep_id <> evoucher.id);
+
+DROP TABLE evoucher_merge;
+
+ALTER TABLE evoucher ADD CONSTRAINT uk_evoucher_user_voucher UNIQUE (user_id, voucher_id);
+
+-- Chỉ mục thường
+CREATE INDEX idx_cart_user ON cart (user_id);
+CREATE INDEX idx_orders_vnp_txn_ref ON orders (vnp_txn_ref);
+CREATE INDEX idx_orders_user_booking_date ON orders (user_id, booking_date);
+CREATE INDEX idx_orders_status_booking_date ON orders (order_status, booking_date);
+CREATE INDEX idx_review_product_accept ON review (product_id, is_accept);
+CREATE INDEX idx_user_email ON user (email);
+CREATE INDEX idx_user_phone ON user (phone);
+CREATE INDEX idx_product_display_price ON product (display_price);
+CREATE INDEX idx_product_category_display_price ON product (category_id, display_price);
+CREATE INDEX idx_product_view_count ON product (view_count);
@@ -0,0 +1,11 @@
+-- Sự kiện đơn hàng đã được từng consumer áp dụng (chống cộng trùng khi outbox giao lại)
+CREATE TABLE processed_order_event
+(
+    id           BIGINT      NOT NULL AUTO_INCREMENT,
+    consumer     VARCHAR(50) NOT NULL,
+    order_id     BIGINT      NOT NULL,
+    event        VARCHAR(30) NOT NULL,
+    processed_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_processed_order_event UNIQUE (consumer, order_id, event)
+);
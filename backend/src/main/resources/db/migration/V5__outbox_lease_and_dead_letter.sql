@@ -0,0 +1,5 @@
+-- Lease nhận tác vụ outbox (nhiều instance không xử lý trùng) và trạng thái dead-letter
+ALTER TABLE outbox_event ADD COLUMN locked_until DATETIME(6);
+ALTER TABLE outbox_event ADD COLUMN claim_token VARCHAR(36);
+ALTER TABLE outbox_event ADD COLUMN dead_at DATETIME(6);
+CREATE INDEX idx_outbox_event_claim_token ON outbox_event (claim_token);
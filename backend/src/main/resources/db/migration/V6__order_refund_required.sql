@@ -0,0 +1,3 @@
+-- Đơn đã bị hủy nhưng vẫn nhận được thanh toán online, cần hoàn tiền / xử lý thủ công
+ALTER TABLE orders ADD COLUMN refund_required BIT NOT NULL DEFAULT 0;
+CREATE INDEX idx_orders_refund_required ON orders (refund_required);
@@ -0,0 +1,2 @@
+-- Lease của lần thực thi đang chạy; quá hạn thì instance khác được nhận lại key (instance cũ đã dừng)
+ALTER TABLE idempotency_record ADD COLUMN in_progress_until DATETIME(6);
@@ -0,0 +1,33 @@
+-- Email / số điện thoại là khóa đăng nhập nên phải duy nhất. Tài khoản trùng không thể gộp như cartitem
+-- (đơn hàng, giỏ hàng, đánh giá... đều trỏ tới user), nên tài khoản cũ nhất giữ giá trị, các tài khoản sau bị xóa
+-- email / số điện thoại trùng (vốn đã không đăng nhập được vì findByEmail trả về nhiều dòng).
+
+-- Chuỗi rỗng (tài khoản đăng nhập mạng xã hội không có số điện thoại) coi như chưa có
+UPDATE user SET email = NULL WHERE email = '';
+UPDATE user SET phone = NULL WHERE phone = '';
+
+CREATE TABLE user_email_dup AS
+SELECT u.id
+FROM user u
+JOIN (SELECT email, MIN(id) AS keep_id FROM user WHERE email IS NOT NULL GROUP BY email HAVING COUNT(*) > 1) d
+  ON d.email = u.email AND d.keep_id <> u.id;
+
+UPDATE user SET email = NULL WHERE id IN (SELECT id FROM user_email_dup);
+
+DROP TABLE user_email_dup;
+
+CREATE TABLE user_phone_dup AS
+SELECT u.id
+FROM user u
+JOIN (SELECT phone, MIN(id) AS keep_id FROM user WHERE phone IS NOT NULL GROUP BY phone HAVING COUNT(*) > 1) d
+  ON d.phone = u.phone AND d.keep_id <> u.id;
+
+UPDATE user SET phone = NULL WHERE id IN (SELECT id FROM user_phone_dup);
+
+DROP TABLE user_phone_dup;
+
+-- Ràng buộc duy nhất thay cho chỉ mục thường tạo ở V3
+DROP INDEX idx_user_email ON user;
+DROP INDEX idx_user_phone ON user;
+ALTER TABLE user ADD CONSTRAINT uk_user_email UNIQUE (email);
+ALTER TABLE user ADD CONSTRAINT uk_user_phone UNIQUE (phone);
@@ -0,0 +1,77 @@
+package org.example.backend.config;
+
+import org.example.backend.service.ProductViewCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CatalogHttpCacheTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductViewCounter productViewCounter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void successfulDetailIsCacheableAndRevalidates() throws Exception {
+        String eTag = mockMvc.perform(get("/api/products/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.CACHE_CONTROL))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/products/1").header(HttpHeaders.IF_NONE_MATCH, "W/" + eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+    }
+
+    @Test
+    void notModifiedDetailStillCountsAView() throws Exception {
+        productViewCounter.flush();
+        long before = viewCount(3L);
+
+        String eTag = mockMvc.perform(get("/api/products/3"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/products/3").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        productViewCounter.flush();
+
+        assertEquals(before + 2, viewCount(3L));
+    }
+
+    @Test
+    void errorResponsesCarryNoCacheHeaders() throws Exception {
+        mockMvc.perform(get("/api/products/999999999"))
+                .andExpect(status().is4xxClientError())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(header().doesNotExist(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    void idBeyondLongRangeIsNotAServerError() throws Exception {
+        mockMvc.perform(get("/api/products/123456789012345678901234"))
+                .andExpect(status().is4xxClientError())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    private long viewCount(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(view_count, 0) FROM product WHERE id = ?", Long.class, productId);
+    }
+}
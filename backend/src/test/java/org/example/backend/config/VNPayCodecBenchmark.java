@@ -0,0 +1,114 @@
+package org.example.backend.config;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh VNPayCodec với cách ký cũ (Mac mới mỗi lần, hex bằng String.format) trên một bộ tham số thanh toán.
+ * Chạy bằng main() hoặc: mvn test -Dtest=VNPayCodecTests#benchmark -Dbenchmark=true
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(0)
+public class VNPayCodecBenchmark {
+    static final String SECRET = "TESTSECRET1234567890ABCDEF";
+
+    private VNPayCodec codec;
+    private Map<String, String> params;
+    private Map<String, String> signedFields;
+
+    @Setup
+    public void setUp() {
+        codec = codec(SECRET);
+        params = samplePayment();
+        signedFields = new HashMap<>(params);
+        signedFields.put("vnp_SecureHash", codec.sign(codec.canonicalize(params)));
+    }
+
+    @Benchmark
+    public String codecSignedQuery() {
+        return codec.signedQuery(params);
+    }
+
+    @Benchmark
+    public boolean codecVerify() {
+        return codec.verify(signedFields);
+    }
+
+    @Benchmark
+    public String legacySign() throws Exception {
+        return legacyHmacSHA512(SECRET, legacyHashAllFields(params));
+    }
+
+    static VNPayCodec codec(String secret) {
+        VNPayConfig config = new VNPayConfig();
+        ReflectionTestUtils.setField(config, "secretKey", secret);
+        return new VNPayCodec(config);
+    }
+
+    static Map<String, String> samplePayment() {
+        Map<String, String> params = new HashMap<>();
+        params.put("vnp_Version", "2.1.0");
+        params.put("vnp_Command", "pay");
+        params.put("vnp_TmnCode", "TEST12345");
+        params.put("vnp_Amount", "34200000");
+        params.put("vnp_CurrCode", "VND");
+        params.put("vnp_TxnRef", "7198623645212672");
+        params.put("vnp_OrderInfo", "Thanh toan don hang: 7198623645212672");
+        params.put("vnp_OrderType", "other");
+        params.put("vnp_Locale", "vn");
+        params.put("vnp_ReturnUrl", "http://localhost:8080/api/payment/vnpay-return");
+        params.put("vnp_IpAddr", "127.0.0.1");
+        params.put("vnp_CreateDate", "20260117103000");
+        params.put("vnp_ExpireDate", "20260117104500");
+        return params;
+    }
+
+    // Cách ký trước khi có VNPayCodec, giữ lại làm mốc so sánh
+    static String legacyHashAllFields(Map<String, String> fields) throws Exception {
+        List<String> fieldNames = new ArrayList<>(fields.keySet());
+        Collections.sort(fieldNames);
+        StringBuilder hashData = new StringBuilder();
+        Iterator<String> itr = fieldNames.iterator();
+        while (itr.hasNext()) {
+            String fieldName = itr.next();
+            String fieldValue = fields.get(fieldName);
+            if ((fieldValue != null) && (fieldValue.length() > 0) &&
+                    !fieldName.equals("vnp_SecureHash") && !fieldName.equals("vnp_SecureHashType")) {
+                hashData.append(fieldName).append('=').append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII.toString()));
+                if (itr.hasNext()) {
+                    hashData.append('&');
+                }
+            }
+        }
+        return hashData.toString();
+    }
+
+    static String legacyHmacSHA512(String key, String data) throws Exception {
+        Mac hmac512 = Mac.getInstance("HmacSHA512");
+        hmac512.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA512"));
+        byte[] result = hmac512.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder(2 * result.length);
+        for (byte b : result) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(VNPayCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VNPayCodecTests {
+    private final VNPayCodec codec = VNPayCodecBenchmark.codec(VNPayCodecBenchmark.SECRET);
+
+    @Test
+    void signatureMatchesLegacyImplementation() throws Exception {
+        Map<String, String> params = VNPayCodecBenchmark.samplePayment();
+        String canonical = codec.canonicalize(params);
+
+        assertEquals(VNPayCodecBenchmark.legacyHashAllFields(params), canonical);
+        assertEquals(VNPayCodecBenchmark.legacyHmacSHA512(VNPayCodecBenchmark.SECRET, canonical), codec.sign(canonical));
+        assertTrue(codec.signedQuery(params).startsWith(canonical + "&vnp_SecureHash="));
+    }
+
+    @Test
+    void verifyAcceptsSignedFieldsAndRejectsTampering() {
+        Map<String, String> fields = signed(VNPayCodecBenchmark.samplePayment());
+        assertTrue(codec.verify(fields));
+
+        Map<String, String> upperCase = new HashMap<>(fields);
+        upperCase.put("vnp_SecureHash", fields.get("vnp_SecureHash").toUpperCase());
+        assertTrue(codec.verify(upperCase));
+
+        Map<String, String> tampered = new HashMap<>(fields);
+        tampered.put("vnp_Amount", "100");
+        assertFalse(codec.verify(tampered));
+
+        Map<String, String> malformed = new HashMap<>(fields);
+        malformed.put("vnp_SecureHash", "xyz");
+        assertFalse(codec.verify(malformed));
+        malformed.remove("vnp_SecureHash");
+        assertFalse(codec.verify(malformed));
+    }
+
+    @Test
+    void emptyValuesAndHashFieldsAreNotSigned() {
+        Map<String, String> params = new HashMap<>(VNPayCodecBenchmark.samplePayment());
+        String expected = codec.canonicalize(params);
+        params.put("vnp_BankCode", "");
+        params.put("vnp_SecureHashType", "HmacSHA512");
+
+        assertEquals(expected, codec.canonicalize(params));
+    }
+
+    @Test
+    void concurrentVerificationIsThreadSafe() throws Exception {
+        Map<String, String> fields = signed(VNPayCodecBenchmark.samplePayment());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Callable<Boolean> task = () -> {
+                for (int i = 0; i < 500; i++) {
+                    if (!codec.verify(fields)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+            for (Future<Boolean> result : executor.invokeAll(Collections.nCopies(8, task))) {
+                assertTrue(result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark() throws Exception {
+        VNPayCodecBenchmark.main(new String[0]);
+    }
+
+    private Map<String, String> signed(Map<String, String> params) {
+        Map<String, String> fields = new HashMap<>(params);
+        fields.put("vnp_SecureHash", codec.sign(codec.canonicalize(params)));
+        return fields;
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.backend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.backend.config.VNPayCodec;
+import org.example.backend.entity.Order;
+import org.example.backend.entity.OrderDetail;
+import org.example.backend.enums.OrderStatus;
+import org.example.backend.repository.OrderRepository;
+import org.example.backend.repository.ProductVariantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class VNPayIpnTests {
+    private static final long VARIANT_ID = 7L;
+    private static final AtomicLong TXN_REF = new AtomicLong(System.currentTimeMillis());
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private VNPayCodec vnpayCodec;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private int originalQuantity;
+
+    @BeforeEach
+    void saveQuantity() {
+        originalQuantity = quantity();
+    }
+
+    @AfterEach
+    void restoreQuantity() {
+        jdbcTemplate.update("UPDATE productvariant SET quantity = ? WHERE id = ?", originalQuantity, VARIANT_ID);
+    }
+
+    @Test
+    void concurrentSignedReplaysConfirmOnce() throws Exception {
+        long txnRef = TXN_REF.incrementAndGet();
+        Long orderId = saveOrder(OrderStatus.PENDING, txnRef);
+        Map<String, String> fields = paidIpn(txnRef);
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Map<String, String>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return ipn(fields);
+                }));
+            }
+            start.countDown();
+            int confirmed = 0;
+            for (Future<Map<String, String>> result : results) {
+                String code = result.get().get("RspCode");
+                if ("00".equals(code)) {
+                    confirmed++;
+                } else {
+                    // 02 khi lần đầu đã commit, 99 (VNPay gửi lại) khi lần đầu còn đang xử lý
+                    assertTrue("02".equals(code) || "99".equals(code), code);
+                }
+            }
+            assertEquals(1, confirmed);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(OrderStatus.CONFIRMED, orderRepository.findById(orderId).orElseThrow().getOrderStatus());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM vnpay_notification WHERE vnp_txn_ref = ?", Integer.class, txnRef));
+        assertEquals("02", ipn(fields).get("RspCode"));
+    }
+
+    @Test
+    void paidIpnForCancelledOrderWithoutStockIsAcknowledged() throws Exception {
+        jdbcTemplate.update("UPDATE productvariant SET quantity = 0 WHERE id = ?", VARIANT_ID);
+        long txnRef = TXN_REF.incrementAndGet();
+        Long orderId = saveOrder(OrderStatus.CANCELLED, txnRef);
+
+        Map<String, String> response = ipn(paidIpn(txnRef));
+
+        assertEquals("00", response.get("RspCode"));
+        assertEquals("Payment recorded - order cancelled, refund pending", response.get("Message"));
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        assertEquals(OrderStatus.CANCELLED, order.getOrderStatus());
+        assertTrue(order.isRefundRequired());
+    }
+
+    @Test
+    void tamperedSignatureIsRejected() throws Exception {
+        long txnRef = TXN_REF.incrementAndGet();
+        saveOrder(OrderStatus.PENDING, txnRef);
+        Map<String, String> fields = paidIpn(txnRef);
+        fields.put("vnp_Amount", "100");
+
+        assertEquals("97", ipn(fields).get("RspCode"));
+    }
+
+    private Map<String, String> paidIpn(long txnRef) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("vnp_Amount", "10000000");
+        fields.put("vnp_ResponseCode", "00");
+        fields.put("vnp_TransactionStatus", "00");
+        fields.put("vnp_TransactionNo", "14000000");
+        fields.put("vnp_TxnRef", String.valueOf(txnRef));
+        fields.put("vnp_SecureHash", vnpayCodec.sign(vnpayCodec.canonicalize(fields)));
+        return fields;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> ipn(Map<String, String> fields) throws Exception {
+        MockHttpServletRequestBuilder request = get("/api/payment/vnpay-ipn");
+        fields.forEach(request::param);
+        String body = mockMvc.perform(request).andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(body, Map.class);
+    }
+
+    private Long saveOrder(OrderStatus status, long txnRef) {
+        Order order = new Order();
+        order.setBookingDate(Instant.now());
+        order.setOrderStatus(status);
+        order.setVnpTxnRef(txnRef);
+        order.setTotalMoney(BigDecimal.valueOf(100000));
+        OrderDetail detail = new OrderDetail();
+        detail.setOrder(order);
+        detail.setVariant(productVariantRepository.findById(VARIANT_ID).orElseThrow());
+        detail.setQuantity(1);
+        detail.setProductPrice(BigDecimal.valueOf(100000));
+        detail.setPriceWithQuantity(BigDecimal.valueOf(100000));
+        order.getOrderDetails().add(detail);
+        return orderRepository.save(order).getId();
+    }
+
+    private int quantity() {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM productvariant WHERE id = ?", Integer.class, VARIANT_ID);
+    }
+}
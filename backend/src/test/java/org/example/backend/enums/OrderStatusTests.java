@@ -0,0 +1,34 @@
+package org.example.backend.enums;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderStatusTests {
+
+    @Test
+    void finalStatusesRejectEveryTransition() {
+        for (OrderStatus current : new OrderStatus[]{OrderStatus.DELIVERED, OrderStatus.CANCELLED, OrderStatus.REFUSED}) {
+            assertTrue(current.isFinal());
+            for (OrderStatus next : OrderStatus.values()) {
+                assertThrows(IllegalStateException.class, () -> current.requireTransitionTo(next));
+            }
+        }
+    }
+
+    @Test
+    void requestedCancellationAllowsAnyTransition() {
+        for (OrderStatus next : OrderStatus.values()) {
+            assertDoesNotThrow(() -> OrderStatus.RQ_CANCELED.requireTransitionTo(next));
+        }
+    }
+
+    @Test
+    void activeStatusesFollowTheTable() {
+        assertTrue(OrderStatus.PENDING.canTransitionTo(OrderStatus.CONFIRMED));
+        assertFalse(OrderStatus.PENDING.canTransitionTo(OrderStatus.DELIVERED));
+        assertTrue(OrderStatus.CONFIRMED.canTransitionTo(OrderStatus.ON_DELIVERY));
+        assertFalse(OrderStatus.ON_DELIVERY.canTransitionTo(OrderStatus.REFUSED));
+        assertTrue(OrderStatus.ON_DELIVERY.canTransitionTo(OrderStatus.DELIVERED));
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.backend.repository;
+
+import org.example.backend.entity.Order;
+import org.example.backend.enums.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class OrderRepositoryTests {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Test
+    void keysetWalksOrdersWithTiedBookingDatesOnce() {
+        // Thời điểm trong tương lai để các đơn này đứng đầu danh sách giảm dần
+        Instant bookingDate = Instant.now().plus(3650, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(saveOrder(bookingDate));
+        }
+
+        Set<Long> seen = new HashSet<>();
+        List<Long> tied = new ArrayList<>();
+        Instant lastDate = null;
+        Long lastId = null;
+        Slice<Order> slice;
+        do {
+            slice = orderRepository.findAllKeyset(lastDate, lastId, PageRequest.of(0, 2));
+            for (Order order : slice) {
+                if (lastDate != null) {
+                    int byDate = order.getBookingDate().compareTo(lastDate);
+                    assertTrue(byDate < 0 || (byDate == 0 && order.getId() < lastId));
+                }
+                assertTrue(seen.add(order.getId()));
+                if (bookingDate.equals(order.getBookingDate())) {
+                    tied.add(order.getId());
+                }
+                lastDate = order.getBookingDate();
+                lastId = order.getId();
+            }
+        } while (slice.hasNext());
+
+        Collections.reverse(created);
+        assertEquals(created, tied);
+    }
+
+    private Long saveOrder(Instant bookingDate) {
+        Order order = new Order();
+        order.setBookingDate(bookingDate);
+        order.setOrderStatus(OrderStatus.PENDING);
+        order.setTotalMoney(BigDecimal.valueOf(100000));
+        return orderRepository.save(order).getId();
+    }
+}
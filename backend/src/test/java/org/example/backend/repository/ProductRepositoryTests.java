@@ -0,0 +1,101 @@
+package org.example.backend.repository;
+
+import org.example.backend.entity.Product;
+import org.example.backend.entity.ProductVariant;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ProductRepositoryTests {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void variantPriceChangeRefreshesDisplayPrice() {
+        ProductVariant variant = productVariantRepository.findById(1L).orElseThrow();
+        variant.setPrice(BigDecimal.valueOf(1000));
+        productVariantRepository.saveAndFlush(variant);
+        productRepository.refreshDisplayPrice(1L);
+
+        assertEquals(0, BigDecimal.valueOf(1000).compareTo(displayPrice(1L)));
+    }
+
+    @Test
+    void backfillCorrectsStaleDisplayPrices() {
+        jdbcTemplate.update("UPDATE product SET display_price = 999999 WHERE id = 2");
+
+        assertTrue(productRepository.backfillDisplayPrices() >= 1);
+
+        BigDecimal expected = jdbcTemplate.queryForObject("SELECT MIN(price) FROM productvariant WHERE product_id = 2", BigDecimal.class);
+        assertEquals(0, expected.compareTo(displayPrice(2L)));
+        assertEquals(0, productRepository.backfillDisplayPrices());
+    }
+
+    @Test
+    void priceKeysetVisitsEveryProductOnceInOrder() {
+        Set<Long> seen = new HashSet<>();
+        BigDecimal lastPrice = null;
+        Long lastId = null;
+        Slice<Product> slice;
+        do {
+            slice = productRepository.findPriceKeysetAsc(null, null, lastPrice, lastId, PageRequest.of(0, 5));
+            for (Product product : slice) {
+                if (lastPrice != null) {
+                    int byPrice = product.getDisplayPrice().compareTo(lastPrice);
+                    assertTrue(byPrice > 0 || (byPrice == 0 && product.getId() > lastId));
+                }
+                assertTrue(seen.add(product.getId()));
+                lastPrice = product.getDisplayPrice();
+                lastId = product.getId();
+            }
+        } while (slice.hasNext());
+        assertEquals(productRepository.count(), seen.size());
+    }
+
+    @Test
+    void nameKeysetDescVisitsEveryProductOnceInOrder() {
+        Set<Long> seen = new HashSet<>();
+        String lastName = null;
+        Long lastId = null;
+        Slice<Product> slice;
+        do {
+            slice = productRepository.findNameKeysetDesc(null, null, lastName, lastId, PageRequest.of(0, 4));
+            for (Product product : slice) {
+                if (lastName != null) {
+                    int byName = product.getName().compareTo(lastName);
+                    assertTrue(byName < 0 || (byName == 0 && product.getId() < lastId));
+                }
+                assertTrue(seen.add(product.getId()));
+                lastName = product.getName();
+                lastId = product.getId();
+            }
+        } while (slice.hasNext());
+        assertEquals(productRepository.count(), seen.size());
+    }
+
+    // Đọc thẳng từ DB: entity trong persistence context của transaction test không thấy câu UPDATE native
+    private BigDecimal displayPrice(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT display_price FROM product WHERE id = ?", BigDecimal.class, productId);
+    }
+}
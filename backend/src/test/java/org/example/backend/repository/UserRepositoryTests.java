@@ -0,0 +1,60 @@
+package org.example.backend.repository;
+
+import org.example.backend.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class UserRepositoryTests {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Test
+    void blankPhonesDoNotCollide() {
+        User first = userRepository.saveAndFlush(user("blank-phone-1", "blank1@example.com", ""));
+        User second = userRepository.saveAndFlush(user("blank-phone-2", "blank2@example.com", " "));
+
+        assertNull(first.getPhone());
+        assertNull(second.getPhone());
+    }
+
+    @Test
+    void duplicateEmailIsRejected() {
+        userRepository.saveAndFlush(user("dup-email-1", "dup@example.com", "0900000001"));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> userRepository.saveAndFlush(user("dup-email-2", "dup@example.com", "0900000002")));
+    }
+
+    @Test
+    void duplicatePhoneIsRejected() {
+        userRepository.saveAndFlush(user("dup-phone-1", "phone1@example.com", "0900000003"));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> userRepository.saveAndFlush(user("dup-phone-2", "phone2@example.com", "0900000003")));
+    }
+
+    private User user(String username, String email, String phone) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("x");
+        user.setEmail(email);
+        user.setPhone(phone);
+        user.setRole(roleRepository.findByRoleName("ROLE_CLIENT").orElseThrow());
+        user.setFailed(0);
+        user.setLocked(false);
+        return user;
+    }
+}
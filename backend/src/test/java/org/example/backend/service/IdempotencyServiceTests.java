@@ -0,0 +1,135 @@
+package org.example.backend.service;
+
+import org.example.backend.entity.IdempotencyRecord;
+import org.example.backend.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyServiceTests {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Test
+    void repeatedKeyReplaysStoredResponse() {
+        String key = UUID.randomUUID().toString();
+        AtomicInteger calls = new AtomicInteger();
+
+        ResponseEntity<?> first = idempotencyService.execute("test", 1L, key, Map.of("a", 1), () -> ok(calls));
+        ResponseEntity<?> second = idempotencyService.execute("test", 1L, key, Map.of("a", 1), () -> ok(calls));
+        ResponseEntity<?> otherBody = idempotencyService.execute("test", 1L, key, Map.of("a", 2), () -> ok(calls));
+
+        assertEquals(1, calls.get());
+        assertEquals(200, first.getStatusCode().value());
+        assertEquals("true", second.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(422, otherBody.getStatusCode().value());
+    }
+
+    @Test
+    void concurrentDuplicatesRunActionOnce() throws Exception {
+        String key = UUID.randomUUID().toString();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ResponseEntity<?>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return idempotencyService.execute("test", 1L, key, Map.of("a", 1), () -> {
+                        sleep(100);
+                        return ok(calls);
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<ResponseEntity<?>> future : futures) {
+                assertEquals(200, future.get(30, TimeUnit.SECONDS).getStatusCode().value());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void failedActionReleasesKey() {
+        String key = UUID.randomUUID().toString();
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("test", 1L, key, Map.of(), () -> {
+            throw new IllegalStateException("lỗi");
+        }));
+        ResponseEntity<?> retry = idempotencyService.execute("test", 1L, key, Map.of(), () -> ok(calls));
+
+        assertEquals(200, retry.getStatusCode().value());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void staleInProgressKeyIsTakenOver() {
+        String key = UUID.randomUUID().toString();
+        saveInProgress("test:1:" + key, Instant.now().minus(Duration.ofMinutes(1)));
+        AtomicInteger calls = new AtomicInteger();
+
+        ResponseEntity<?> response = idempotencyService.execute("test", 1L, key, Map.of(), () -> ok(calls));
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(1, calls.get());
+        assertTrue(idempotencyRecordRepository.findByIdemKey("test:1:" + key).orElseThrow().isCompleted());
+    }
+
+    @Test
+    void liveInProgressKeyConflicts() {
+        String key = UUID.randomUUID().toString();
+        saveInProgress("test:1:" + key, Instant.now().plus(Duration.ofMinutes(1)));
+        AtomicInteger calls = new AtomicInteger();
+
+        ResponseEntity<?> response = idempotencyService.execute("test", 1L, key, Map.of(), () -> ok(calls));
+
+        assertEquals(409, response.getStatusCode().value());
+        assertEquals(0, calls.get());
+    }
+
+    private void saveInProgress(String idemKey, Instant inProgressUntil) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setIdemKey(idemKey);
+        record.setRequestHash("stale");
+        record.setCompleted(false);
+        record.setInProgressUntil(inProgressUntil);
+        record.setCreatedAt(Instant.now().minus(Duration.ofMinutes(5)));
+        record.setExpiresAt(Instant.now().plus(Duration.ofHours(1)));
+        idempotencyRecordRepository.save(record);
+    }
+
+    private static ResponseEntity<?> ok(AtomicInteger calls) {
+        return ResponseEntity.ok(Map.of("call", calls.incrementAndGet()));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
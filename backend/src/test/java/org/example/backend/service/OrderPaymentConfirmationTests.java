@@ -0,0 +1,104 @@
+package org.example.backend.service;
+
+import org.example.backend.entity.Order;
+import org.example.backend.entity.OrderDetail;
+import org.example.backend.enums.OrderStatus;
+import org.example.backend.enums.PaymentConfirmation;
+import org.example.backend.repository.OrderRepository;
+import org.example.backend.repository.ProductVariantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderPaymentConfirmationTests {
+    private static final long VARIANT_ID = 7L;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private int originalQuantity;
+
+    @BeforeEach
+    void saveQuantity() {
+        originalQuantity = quantity();
+    }
+
+    @AfterEach
+    void restoreQuantity() {
+        jdbcTemplate.update("UPDATE productvariant SET quantity = ? WHERE id = ?", originalQuantity, VARIANT_ID);
+    }
+
+    @Test
+    void lateSuccessfulPaymentRevivesExpiredOrder() {
+        jdbcTemplate.update("UPDATE productvariant SET quantity = 5 WHERE id = ?", VARIANT_ID);
+        Long orderId = saveOrder(OrderStatus.CANCELLED, 2);
+
+        assertEquals(PaymentConfirmation.REVIVED, orderService.confirmOnlinePayment(orderId));
+
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        assertEquals(OrderStatus.CONFIRMED, order.getOrderStatus());
+        assertFalse(order.isRefundRequired());
+        assertEquals(3, quantity());
+        assertEquals(PaymentConfirmation.ALREADY_CONFIRMED, orderService.confirmOnlinePayment(orderId));
+    }
+
+    @Test
+    void latePaymentWithoutStockIsFlaggedForRefund() {
+        jdbcTemplate.update("UPDATE productvariant SET quantity = 1 WHERE id = ?", VARIANT_ID);
+        Long orderId = saveOrder(OrderStatus.CANCELLED, 2);
+
+        assertEquals(PaymentConfirmation.REFUND_REQUIRED, orderService.confirmOnlinePayment(orderId));
+
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        assertEquals(OrderStatus.CANCELLED, order.getOrderStatus());
+        assertTrue(order.isRefundRequired());
+        assertEquals(1, quantity());
+    }
+
+    @Test
+    void pendingOrderIsConfirmed() {
+        Long orderId = saveOrder(OrderStatus.PENDING, 1);
+
+        assertEquals(PaymentConfirmation.CONFIRMED, orderService.confirmOnlinePayment(orderId));
+        assertEquals(OrderStatus.CONFIRMED, orderRepository.findById(orderId).orElseThrow().getOrderStatus());
+    }
+
+    private Long saveOrder(OrderStatus status, int quantity) {
+        Order order = new Order();
+        order.setBookingDate(Instant.now());
+        order.setOrderStatus(status);
+        order.setTotalMoney(BigDecimal.valueOf(100000L * quantity));
+        OrderDetail detail = new OrderDetail();
+        detail.setOrder(order);
+        detail.setVariant(productVariantRepository.findById(VARIANT_ID).orElseThrow());
+        detail.setQuantity(quantity);
+        detail.setProductPrice(BigDecimal.valueOf(100000));
+        detail.setPriceWithQuantity(BigDecimal.valueOf(100000L * quantity));
+        order.getOrderDetails().add(detail);
+        return orderRepository.save(order).getId();
+    }
+
+    private int quantity() {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM productvariant WHERE id = ?", Integer.class, VARIANT_ID);
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.backend.service;
+
+import org.example.backend.entity.Order;
+import org.example.backend.enums.OrderStatus;
+import org.example.backend.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderStatusUpdateTests {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final List<Long> created = new ArrayList<>();
+
+    @AfterEach
+    void deleteOrders() {
+        orderRepository.deleteAllById(created);
+    }
+
+    @Test
+    void staleTransitionIsRejected() {
+        Long orderId = saveOrder(OrderStatus.ON_DELIVERY);
+        orderService.updateOrderStatus(orderId, OrderStatus.DELIVERED);
+
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        assertEquals(OrderStatus.DELIVERED, order.getOrderStatus());
+        assertNotNull(order.getDeliveryDate());
+        assertThrows(IllegalStateException.class, () -> orderService.updateOrderStatus(orderId, OrderStatus.DELIVERED));
+    }
+
+    @Test
+    void concurrentUpdatesApplyOnce() throws Exception {
+        Long orderId = saveOrder(OrderStatus.ON_DELIVERY);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    orderService.updateOrderStatus(orderId, OrderStatus.DELIVERED);
+                    return null;
+                }));
+            }
+            start.countDown();
+            int applied = 0;
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                    applied++;
+                } catch (ExecutionException e) {
+                    // Các lời gọi thua cuộc bị từ chối thay vì ghi đè
+                }
+            }
+            assertEquals(1, applied);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(OrderStatus.DELIVERED, orderRepository.findStatusById(orderId).orElseThrow());
+    }
+
+    private Long saveOrder(OrderStatus status) {
+        Order order = new Order();
+        order.setBookingDate(Instant.now());
+        order.setOrderStatus(status);
+        order.setTotalMoney(BigDecimal.valueOf(100000));
+        Long id = orderRepository.save(order).getId();
+        created.add(id);
+        return id;
+    }
+}
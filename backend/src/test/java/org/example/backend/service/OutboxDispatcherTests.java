@@ -0,0 +1,74 @@
+package org.example.backend.service;
+
+import org.example.backend.entity.OutboxEvent;
+import org.example.backend.enums.OutboxEventType;
+import org.example.backend.repository.OutboxEventRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "outbox.max-attempts=2")
+@ActiveProfiles("test")
+class OutboxDispatcherTests {
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Test
+    void deliveredEventIsDeleted() {
+        Long id = save(OutboxEventType.PRODUCT_CHANGED, 1L, 0, null).getId();
+
+        outboxDispatcher.dispatch();
+
+        assertFalse(outboxEventRepository.existsById(id));
+    }
+
+    @Test
+    void eventLeasedByAnotherInstanceIsSkipped() {
+        Long id = save(OutboxEventType.PRODUCT_CHANGED, 1L, 0, Instant.now().plus(Duration.ofMinutes(5))).getId();
+
+        outboxDispatcher.dispatch();
+
+        OutboxEvent event = outboxEventRepository.findById(id).orElseThrow();
+        assertEquals(0, event.getAttempts());
+        assertNull(event.getDeadAt());
+    }
+
+    @Test
+    void eventReachingMaxAttemptsIsDeadLettered() {
+        Long id = save(OutboxEventType.ORDER_CONFIRMATION_EMAIL, Long.MAX_VALUE, 1, null).getId();
+
+        outboxDispatcher.dispatch();
+
+        OutboxEvent event = outboxEventRepository.findById(id).orElseThrow();
+        assertEquals(2, event.getAttempts());
+        assertNotNull(event.getDeadAt());
+        assertNotNull(event.getLastError());
+
+        // Dòng dead-letter không được nhận lại
+        event.setNextAttemptAt(Instant.now().minusSeconds(1));
+        outboxEventRepository.save(event);
+        outboxDispatcher.dispatch();
+        assertEquals(2, outboxEventRepository.findById(id).orElseThrow().getAttempts());
+    }
+
+    private OutboxEvent save(OutboxEventType type, Long aggregateId, int attempts, Instant lockedUntil) {
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(type);
+        event.setAggregateId(aggregateId);
+        event.setCreatedAt(Instant.now());
+        event.setAttempts(attempts);
+        event.setNextAttemptAt(Instant.now().minusSeconds(1));
+        event.setLockedUntil(lockedUntil);
+        return outboxEventRepository.save(event);
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.backend.service;
+
+import org.example.backend.repository.StockReservationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReservationSweeperTests {
+
+    @Test
+    void failingOrderDoesNotStopTheSweep() {
+        StockReservationRepository repository = mock(StockReservationRepository.class);
+        OrderService orderService = mock(OrderService.class);
+        when(repository.findExpiredOrderIds(any(), eq(0L), any())).thenReturn(List.of(1L, 2L));
+        when(repository.findExpiredOrderIds(any(), eq(2L), any())).thenReturn(List.of(3L));
+        when(orderService.expirePendingOrder(1L)).thenThrow(new IllegalStateException("lỗi giả lập"));
+        when(orderService.expirePendingOrder(2L)).thenReturn(true);
+        when(orderService.expirePendingOrder(3L)).thenReturn(true);
+        ReservationSweeper sweeper = new ReservationSweeper(repository, orderService);
+        ReflectionTestUtils.setField(sweeper, "batchSize", 2);
+
+        sweeper.releaseExpired();
+
+        verify(orderService).expirePendingOrder(2L);
+        verify(orderService).expirePendingOrder(3L);
+        verify(repository, times(2)).findExpiredOrderIds(any(), anyLong(), any());
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.backend.service;
+
+import org.example.backend.entity.Order;
+import org.example.backend.enums.OrderStatus;
+import org.example.backend.event.OrderStatusChangedEvent;
+import org.example.backend.repository.OrderRepository;
+import org.example.backend.repository.RevenueDailyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class RevenueSeriesServiceTests {
+    // 17:30 UTC là 00:30 ngày hôm sau theo giờ Việt Nam (app.zone-id)
+    private static final Instant DELIVERED_AT = Instant.parse("2026-01-01T17:30:00Z");
+    private static final LocalDate SALES_DATE = LocalDate.of(2026, 1, 2);
+    private static final Instant REPLAYED_AT = Instant.parse("2031-04-20T03:00:00Z");
+    private static final LocalDate REPLAYED_DATE = LocalDate.of(2031, 4, 20);
+
+    @Autowired
+    private RevenueSeriesService revenueSeriesService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private RevenueDailyRepository revenueDailyRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void incrementalPathAndRebuildUseTheSameDayBoundary() {
+        Order order = new Order();
+        order.setBookingDate(DELIVERED_AT.minusSeconds(86400));
+        order.setDeliveryDate(DELIVERED_AT);
+        order.setOrderStatus(OrderStatus.DELIVERED);
+        order.setTotalMoney(BigDecimal.valueOf(250000));
+        Long orderId = orderRepository.save(order).getId();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> revenueSeriesService.onOrderStatusChanged(
+                new OrderStatusChangedEvent(orderId, OrderStatus.ON_DELIVERY, OrderStatus.DELIVERED)));
+        BigDecimal incremental = revenueDailyRepository.sumRevenue(SALES_DATE, SALES_DATE);
+
+        revenueSeriesService.rebuild();
+        BigDecimal rebuilt = revenueDailyRepository.sumRevenue(SALES_DATE, SALES_DATE);
+
+        assertEquals(0, BigDecimal.valueOf(250000).compareTo(incremental));
+        assertEquals(0, incremental.compareTo(rebuilt));
+    }
+
+    @Test
+    void concurrentDeliveredEventsAreCountedOnce() {
+        Order order = new Order();
+        order.setBookingDate(REPLAYED_AT.minusSeconds(86400));
+        order.setDeliveryDate(REPLAYED_AT);
+        order.setOrderStatus(OrderStatus.DELIVERED);
+        order.setTotalMoney(BigDecimal.valueOf(180000));
+        Long orderId = orderRepository.save(order).getId();
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CountDownLatch start = new CountDownLatch(1);
+        Runnable deliver = () -> {
+            try {
+                start.await();
+                transactionTemplate.executeWithoutResult(status -> {
+                    revenueSeriesService.onOrderStatusChanged(
+                            new OrderStatusChangedEvent(orderId, OrderStatus.ON_DELIVERY, OrderStatus.DELIVERED));
+                    try {
+                        Thread.sleep(200); // Giữ transaction mở để hai lần cộng chồng lên nhau
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        CompletableFuture<Void> first = CompletableFuture.runAsync(deliver);
+        CompletableFuture<Void> second = CompletableFuture.runAsync(deliver);
+        start.countDown();
+        // Transaction thua cuộc có thể bị từ chối, điều quan trọng là không cộng hai lần
+        CompletableFuture.allOf(first, second).exceptionally(e -> null).join();
+
+        assertEquals(0, BigDecimal.valueOf(180000).compareTo(revenueDailyRepository.sumRevenue(REPLAYED_DATE, REPLAYED_DATE)));
+        orderRepository.deleteById(orderId);
+        revenueSeriesService.rebuild();
+    }
+}
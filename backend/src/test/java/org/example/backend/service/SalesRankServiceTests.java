@@ -0,0 +1,67 @@
+package org.example.backend.service;
+
+import org.example.backend.entity.Order;
+import org.example.backend.entity.OrderDetail;
+import org.example.backend.entity.ProductSales;
+import org.example.backend.enums.OrderStatus;
+import org.example.backend.event.OrderPlacedEvent;
+import org.example.backend.event.OrderStatusChangedEvent;
+import org.example.backend.repository.OrderRepository;
+import org.example.backend.repository.ProductSalesRepository;
+import org.example.backend.repository.ProductVariantRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SalesRankServiceTests {
+
+    @Autowired
+    private SalesRankService salesRankService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private ProductSalesRepository productSalesRepository;
+
+    @Test
+    void redeliveredEventsAreCountedOnce() {
+        long before = unitsSold(1L);
+        Order order = new Order();
+        order.setBookingDate(Instant.now());
+        order.setOrderStatus(OrderStatus.PENDING);
+        order.setTotalMoney(BigDecimal.valueOf(342000));
+        OrderDetail detail = new OrderDetail();
+        detail.setOrder(order);
+        detail.setVariant(productVariantRepository.findById(1L).orElseThrow());
+        detail.setQuantity(2);
+        detail.setProductPrice(BigDecimal.valueOf(171000));
+        detail.setPriceWithQuantity(BigDecimal.valueOf(342000));
+        order.getOrderDetails().add(detail);
+        Long orderId = orderRepository.save(order).getId();
+
+        salesRankService.onOrderPlaced(new OrderPlacedEvent(orderId));
+        salesRankService.onOrderPlaced(new OrderPlacedEvent(orderId));
+        assertEquals(before + 2, unitsSold(1L));
+
+        OrderStatusChangedEvent cancelled = new OrderStatusChangedEvent(orderId, OrderStatus.PENDING, OrderStatus.CANCELLED);
+        salesRankService.onOrderStatusChanged(cancelled);
+        salesRankService.onOrderStatusChanged(cancelled);
+        assertEquals(before, unitsSold(1L));
+    }
+
+    private long unitsSold(Long productId) {
+        return productSalesRepository.findById(productId).map(ProductSales::getUnitsSold).orElse(0L);
+    }
+}
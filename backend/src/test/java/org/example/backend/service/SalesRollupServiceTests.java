@@ -0,0 +1,141 @@
+package org.example.backend.service;
+
+import org.example.backend.entity.Order;
+import org.example.backend.entity.OrderDetail;
+import org.example.backend.enums.OrderStatus;
+import org.example.backend.event.OrderStatusChangedEvent;
+import org.example.backend.repository.OrderRepository;
+import org.example.backend.repository.ProductVariantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SalesRollupServiceTests {
+    // Ngày riêng cho test để tổng của bucket không lẫn với đơn khác
+    private static final Instant DELIVERED_AT = Instant.parse("2031-03-10T03:00:00Z");
+    private static final LocalDate SALES_DATE = LocalDate.of(2031, 3, 10);
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long orderId;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM sales_rollup_daily WHERE sales_date = ?", SALES_DATE);
+        jdbcTemplate.update("DELETE FROM processed_order_event WHERE order_id = ?", orderId);
+        orderRepository.deleteById(orderId);
+    }
+
+    @Test
+    void concurrentDeliveredTransitionsAreCountedOnce() throws Exception {
+        orderId = saveDeliveredOrder();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    transactionTemplate.executeWithoutResult(status -> {
+                        salesRollupService.onOrderStatusChanged(
+                                new OrderStatusChangedEvent(orderId, OrderStatus.ON_DELIVERY, OrderStatus.DELIVERED));
+                        sleep(200); // Giữ transaction mở để hai lần cộng chồng lên nhau
+                    });
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    // Transaction thua cuộc có thể bị từ chối, điều quan trọng là không cộng hai lần
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, BigDecimal.valueOf(200000).compareTo(revenue()));
+        assertEquals(2, units());
+    }
+
+    @Test
+    void rebuildMarksDeliveredOrdersAsCounted() {
+        orderId = saveDeliveredOrder();
+        salesRollupService.rebuild();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> salesRollupService.onOrderStatusChanged(
+                new OrderStatusChangedEvent(orderId, OrderStatus.ON_DELIVERY, OrderStatus.DELIVERED)));
+
+        assertEquals(0, BigDecimal.valueOf(200000).compareTo(revenue()));
+    }
+
+    private Long saveDeliveredOrder() {
+        Order order = new Order();
+        order.setBookingDate(DELIVERED_AT.minusSeconds(86400));
+        order.setDeliveryDate(DELIVERED_AT);
+        order.setOrderStatus(OrderStatus.DELIVERED);
+        order.setTotalMoney(BigDecimal.valueOf(200000));
+        OrderDetail detail = new OrderDetail();
+        detail.setOrder(order);
+        detail.setVariant(productVariantRepository.findById(7L).orElseThrow());
+        detail.setQuantity(2);
+        detail.setProductPrice(BigDecimal.valueOf(100000));
+        detail.setPriceWithQuantity(BigDecimal.valueOf(200000));
+        order.getOrderDetails().add(detail);
+        return orderRepository.save(order).getId();
+    }
+
+    private BigDecimal revenue() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(revenue), 0) FROM sales_rollup_daily WHERE sales_date = ?",
+                BigDecimal.class, SALES_DATE);
+    }
+
+    private long units() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(units_sold), 0) FROM sales_rollup_daily WHERE sales_date = ?",
+                Long.class, SALES_DATE);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.backend.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.backend.dto.ShippingFeeRequest;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Gọi ShippingQuoteService vào một GHTK giả lập chạy bằng HttpServer của JDK.
+ */
+class ShippingQuoteServiceTests {
+    private HttpServer server;
+    private final List<JSONObject> payloads = new CopyOnWriteArrayList<>();
+    private volatile String responseBody = "{\"success\":true,\"fee\":{\"fee\":30000}}";
+    private volatile long responseDelayMillis;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/services/shipment/fee", exchange -> {
+            payloads.add(new JSONObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)));
+            try {
+                Thread.sleep(responseDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = responseBody.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void quotesRealWeightValueAndAddressButCachesByBucket() {
+        ShippingQuoteService service = service(Duration.ofMinutes(30));
+
+        assertEquals(30000, service.getFee(request(1100, 120000)));
+        assertEquals(30000, service.getFee(request(1400, 180000)));
+
+        assertEquals(1, payloads.size());
+        JSONObject payload = payloads.get(0);
+        assertEquals(1100, payload.getInt("weight"));
+        assertEquals(120000, payload.getInt("value"));
+        assertEquals("12 Nguyễn Huệ", payload.getString("address"));
+        assertEquals("TP Hồ Chí Minh", payload.getString("province"));
+
+        service.getFee(request(1600, 120000));
+        assertEquals(2, payloads.size());
+        assertEquals(1600, payloads.get(1).getInt("weight"));
+    }
+
+    @Test
+    void concurrentMissesCallGhtkOnce() throws Exception {
+        responseDelayMillis = 200;
+        ShippingQuoteService service = service(Duration.ofMinutes(30));
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Double>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return service.getFee(request(1000, 100000));
+                }));
+            }
+            start.countDown();
+            for (Future<Double> result : results) {
+                assertEquals(30000, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, payloads.size());
+    }
+
+    @Test
+    void staleQuoteIsServedWhileRefreshing() throws Exception {
+        ShippingQuoteService service = service(Duration.ofMillis(50));
+        assertEquals(30000, service.getFee(request(1000, 100000)));
+
+        responseBody = "{\"success\":true,\"fee\":{\"fee\":35000}}";
+        Thread.sleep(100);
+        assertEquals(30000, service.getFee(request(1000, 100000)));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getFee(request(1000, 100000)) != 35000) {
+            assertTrue(System.currentTimeMillis() < deadline, "Giá chưa được làm mới ở nền");
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void rejectedAddressIsNotCached() {
+        responseBody = "{\"success\":false,\"message\":\"Địa chỉ không hợp lệ\"}";
+        ShippingQuoteService service = service(Duration.ofMinutes(30));
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> service.getFee(request(1000, 100000)));
+        assertEquals("Địa chỉ không hợp lệ", error.getMessage());
+
+        responseBody = "{\"success\":true,\"fee\":{\"fee\":30000}}";
+        assertEquals(30000, service.getFee(request(1000, 100000)));
+        assertEquals(2, payloads.size());
+    }
+
+    private ShippingQuoteService service(Duration freshTtl) {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/services/shipment/fee";
+        return new ShippingQuoteService(url, "test-ghtk-token", "TP Hồ Chí Minh", "Quận 1", "Phường Bến Nghé",
+                "123 Đường Test", 500, 100000, 100, freshTtl, Duration.ofHours(6), new SimpleMeterRegistry());
+    }
+
+    private static ShippingFeeRequest request(int weight, int value) {
+        ShippingFeeRequest request = new ShippingFeeRequest();
+        request.setCity("Hồ Chí Minh");
+        request.setDistrict("Quận 1");
+        request.setWard("Phường Bến Nghé");
+        request.setAddress("12 Nguyễn Huệ");
+        request.setWeight(weight);
+        request.setValue(value);
+        return request;
+    }
+}
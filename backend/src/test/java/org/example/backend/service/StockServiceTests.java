@@ -0,0 +1,203 @@
+package org.example.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StockServiceTests {
+    private static final long VARIANT_ID = 5L;
+    private static final long OTHER_VARIANT_ID = 6L;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private int originalQuantity;
+    private int originalOtherQuantity;
+
+    @BeforeEach
+    void saveQuantities() {
+        originalQuantity = quantity(VARIANT_ID);
+        originalOtherQuantity = quantity(OTHER_VARIANT_ID);
+    }
+
+    @AfterEach
+    void restoreQuantities() {
+        jdbcTemplate.update("UPDATE productvariant SET quantity = ? WHERE id = ?", originalQuantity, VARIANT_ID);
+        jdbcTemplate.update("UPDATE productvariant SET quantity = ? WHERE id = ?", originalOtherQuantity, OTHER_VARIANT_ID);
+    }
+
+    @Test
+    void concurrentDecrementsNeverOversell() throws Exception {
+        int stock = 10;
+        int buyers = 32;
+        jdbcTemplate.update("UPDATE productvariant SET quantity = ? WHERE id = ?", stock, VARIANT_ID);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < buyers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> stockService.decrement(Map.of(VARIANT_ID, 1)));
+                        sold.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(stock, sold.get());
+        assertEquals(buyers - stock, rejected.get());
+        assertEquals(0, quantity(VARIANT_ID));
+    }
+
+    @Test
+    void crossedMultiLineOrdersNeverOversellOrDeadlock() throws Exception {
+        int stock = 20;
+        int buyers = 64;
+        jdbcTemplate.update("UPDATE productvariant SET quantity = ? WHERE id IN (?, ?)", stock, VARIANT_ID, OTHER_VARIANT_ID);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < buyers; i++) {
+                // Một nửa số đơn liệt kê dòng hàng theo thứ tự ngược lại; lỗi deadlock sẽ làm future ném ra ngoài
+                Map<Long, Integer> lines = crossedOrder(i % 2 == 0);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> stockService.decrement(lines));
+                        sold.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(stock, sold.get());
+        assertEquals(buyers - stock, rejected.get());
+        assertEquals(0, quantity(VARIANT_ID));
+        assertEquals(0, quantity(OTHER_VARIANT_ID));
+    }
+
+    /**
+     * Đo thông lượng (đơn/giây) khi nhiều luồng cùng đặt đơn hai dòng hàng chéo nhau trên hai biến thể.
+     * Chạy bằng: mvn test -Dtest=StockServiceTests -Dbenchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void contentionBenchmark() throws Exception {
+        int stock = 1_000_000;
+        int threads = Integer.getInteger("benchmark.threads", 16);
+        long durationMillis = Long.getLong("benchmark.millis", 10_000L);
+        jdbcTemplate.update("UPDATE productvariant SET quantity = ? WHERE id IN (?, ?)", stock, VARIANT_ID, OTHER_VARIANT_ID);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicLong orders = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long startedAt;
+        long elapsedNanos;
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Map<Long, Integer> lines = crossedOrder(i % 2 == 0);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+                    while (System.nanoTime() < deadline) {
+                        transactionTemplate.executeWithoutResult(status -> stockService.decrement(lines));
+                        orders.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            startedAt = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(durationMillis + 60_000, TimeUnit.MILLISECONDS);
+            }
+            elapsedNanos = System.nanoTime() - startedAt;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        double ordersPerSecond = orders.get() * 1e9 / elapsedNanos;
+        System.out.printf("StockService contention: %d luồng, %d đơn trong %.1f s = %.0f đơn/giây%n",
+                threads, orders.get(), elapsedNanos / 1e9, ordersPerSecond);
+        assertEquals(stock - orders.get(), quantity(VARIANT_ID));
+        assertEquals(stock - orders.get(), quantity(OTHER_VARIANT_ID));
+    }
+
+    @Test
+    void insufficientLineRollsBackWholeOrder() {
+        jdbcTemplate.update("UPDATE productvariant SET quantity = 1 WHERE id = ?", VARIANT_ID);
+        int before = quantity(OTHER_VARIANT_ID);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                stockService.decrement(Map.of(OTHER_VARIANT_ID, 1, VARIANT_ID, 2))));
+
+        assertEquals(before, quantity(OTHER_VARIANT_ID));
+        assertEquals(1, quantity(VARIANT_ID));
+    }
+
+    private static Map<Long, Integer> crossedOrder(boolean ascending) {
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        lines.put(ascending ? VARIANT_ID : OTHER_VARIANT_ID, 1);
+        lines.put(ascending ? OTHER_VARIANT_ID : VARIANT_ID, 1);
+        return lines;
+    }
+
+    private int quantity(long variantId) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM productvariant WHERE id = ?", Integer.class, variantId);
+    }
+}
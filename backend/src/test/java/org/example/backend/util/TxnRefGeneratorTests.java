@@ -0,0 +1,50 @@
+package org.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TxnRefGeneratorTests {
+
+    @Test
+    void missingNodeIdFailsOutsideDevAndTest() {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles("prod");
+
+        assertThrows(IllegalStateException.class, () -> new TxnRefGenerator(-1, environment));
+        assertThrows(IllegalStateException.class, () -> new TxnRefGenerator(-1, new MockEnvironment()));
+    }
+
+    @Test
+    void missingNodeIdFallsBackToZeroInDev() {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles("dev");
+
+        long id = new TxnRefGenerator(-1, environment).nextId();
+
+        assertEquals(0, (id >>> 12) & 1023);
+    }
+
+    @Test
+    void nodeIdOutOfRangeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TxnRefGenerator(1024, new MockEnvironment()));
+    }
+
+    @Test
+    void idsCarryNodeIdAndIncrease() {
+        TxnRefGenerator generator = new TxnRefGenerator(37, new MockEnvironment());
+        Set<Long> seen = new HashSet<>();
+        long previous = 0;
+        for (int i = 0; i < 10000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertEquals(37, (id >>> 12) & 1023);
+            assertTrue(seen.add(id));
+            previous = id;
+        }
+    }
+}
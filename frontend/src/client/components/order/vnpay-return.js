@@ -113,7 +113,9 @@ const Confirmation = () => {
                     <div className="col-lg-12">
                         <div className="confirmation_tittle">
                             <span>
-                                {order.orderStatus === 'CONFIRMED'
+                                {searchParams.get('paymentStatus') === 'REFUND_REQUIRED'
+                                    ? 'Đơn hàng đã bị hủy trước khi thanh toán hoàn tất. Chúng tôi sẽ liên hệ để hoàn tiền cho bạn.'
+                                    : order.orderStatus === 'CONFIRMED'
                                     ? 'Cảm ơn bạn đã đặt hàng. Đơn hàng đã được xác nhận!'
                                     : order.orderStatus === 'PENDING'
                                         ? 'Đơn hàng đang chờ xác nhận thanh toán.'